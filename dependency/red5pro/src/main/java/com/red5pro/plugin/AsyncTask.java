@@ -0,0 +1,138 @@
+package com.red5pro.plugin;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A task run on a plugin executor which is its own future. Cancelling the future, or missing the deadline, interrupts the
+ * task if it is running; tasks are expected to treat the interrupt as a request to stop. A deadline expires on the timer
+ * thread, so plain continuations of a timed out task run there and should be short; the async variants run on the plugin
+ * executor.
+ */
+final class AsyncTask<T> extends PluginFuture<T> implements Runnable {
+
+    private final Callable<T> task;
+
+    private final TimerView timer;
+
+    private final long deadlineMs;
+
+    private Thread runner;
+
+    // pending delay and deadline timeouts, cancelled on completion
+    private volatile Future<?> delay, deadline;
+
+    AsyncTask(Callable<T> task, Executor executor, TimerView timer, long deadlineMs) {
+        super(executor);
+        this.task = task;
+        this.timer = timer;
+        this.deadlineMs = deadlineMs;
+        whenComplete((result, error) -> finish());
+    }
+
+    /**
+     * Hands the task to the executor after a delay, or at once if there is none.
+     *
+     * @param delayMs
+     */
+    void start(long delayMs) {
+        if (delayMs > 0L) {
+            // handing the task over is short, so it is done on the timer thread
+            delay = timer.schedule(new Trigger(this::start), delayMs, TimeUnit.MILLISECONDS, Runnable::run);
+        } else {
+            start();
+        }
+    }
+
+    private void start() {
+        if (isDone()) {
+            return;
+        }
+        // the deadline counts from when the task is due, and expires on the timer thread so a saturated executor cannot
+        // hold it back
+        if (deadlineMs > 0L) {
+            deadline = timer.schedule(new Trigger(this::expire), deadlineMs, TimeUnit.MILLISECONDS, Runnable::run);
+        }
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            completeExceptionally(e);
+        }
+    }
+
+    private void expire() {
+        completeExceptionally(new TimeoutException("Task exceeded its " + deadlineMs + "ms deadline"));
+    }
+
+    /**
+     * A delay or deadline timeout; one the timer ends without running, such as when the plugin has stopped, fails the task
+     * rather than leaving it pending forever. Timeouts cancelled on completion find the task already done.
+     */
+    private final class Trigger implements HashedWheelTimer.Task {
+
+        private final Runnable action;
+
+        Trigger(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+
+        @Override
+        public void dropped() {
+            completeExceptionally(new RejectedExecutionException("Timer is stopped"));
+        }
+
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        T result = null;
+        Throwable error = null;
+        try {
+            result = task.call();
+        } catch (Throwable t) {
+            error = t;
+        }
+        // cleared before completing so the completion does not interrupt its own thread
+        synchronized (this) {
+            runner = null;
+        }
+        if (error != null) {
+            completeExceptionally(error);
+        } else {
+            complete(result);
+        }
+    }
+
+    // completed by any means; interrupts the task if it was cancelled or timed out while running
+    private void finish() {
+        Future<?> current = delay;
+        if (current != null) {
+            current.cancel(false);
+        }
+        current = deadline;
+        if (current != null) {
+            current.cancel(false);
+        }
+        synchronized (this) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+}
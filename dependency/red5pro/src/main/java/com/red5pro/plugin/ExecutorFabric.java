@@ -0,0 +1,149 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.server.stream.Red5ProThreadFactory;
+
+/**
+ * Server-wide executors shared by the plugins which opt into them: a work-stealing pool for CPU work, a pool for
+ * blocking work, a small scheduler which only times delayed tasks and a hashed wheel for one-shot timeouts. Plugins use
+ * the pools through named, quota-limited {@link FabricView}s, which also keep per-plugin accounting, and the wheel through
+ * {@link TimerView}s.
+ */
+public class ExecutorFabric {
+
+    private static Logger log = LoggerFactory.getLogger(ExecutorFabric.class);
+
+    private static volatile ExecutorFabric instance;
+
+    private final ForkJoinPool cpuPool;
+
+    private final ThreadPoolExecutor blockingPool;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    // expired timeouts are handed to the executor of the view which scheduled them
+    private final HashedWheelTimer timer;
+
+    private final ConcurrentHashMap<String, FabricView> views = new ConcurrentHashMap<>();
+
+    private ExecutorFabric(int cpuThreads, int blockingThreads, int schedulerThreads) {
+        cpuPool = new ForkJoinPool(cpuThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Fabric-cpu-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, (thread, e) -> log.warn("Uncaught exception on {}", thread.getName(), e), true);
+        // fixed size with idle threads timing out, so the pool grows to its size only under load
+        blockingPool = new ThreadPoolExecutor(blockingThreads, blockingThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new Red5ProThreadFactory(true, "Fabric-io"));
+        blockingPool.allowCoreThreadTimeOut(true);
+        scheduler = new ScheduledThreadPoolExecutor(schedulerThreads, new Red5ProThreadFactory(true, "Fabric-sched"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        timer = new HashedWheelTimer(new Red5ProThreadFactory(true, "Fabric-timer"), Runnable::run, 10L, 4096);
+    }
+
+    /**
+     * Returns the fabric, creating it on first use.
+     *
+     * @return fabric
+     */
+    public static ExecutorFabric get() {
+        ExecutorFabric fabric = instance;
+        if (fabric == null) {
+            synchronized (ExecutorFabric.class) {
+                fabric = instance;
+                if (fabric == null) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    instance = fabric = new ExecutorFabric(cores, Math.max(16, cores * 8), 2);
+                }
+            }
+        }
+        return fabric;
+    }
+
+    /**
+     * Returns a view of the blocking pool, replacing any earlier view of the same name in the accounting.
+     *
+     * @param name view name
+     * @param quota tasks of the view allowed to run at once
+     * @return view
+     */
+    public FabricView blockingView(String name, int quota) {
+        return register(new FabricView(name, blockingPool, scheduler, quota));
+    }
+
+    /**
+     * Returns a view of the CPU pool, for tasks which do not block.
+     *
+     * @param name view name
+     * @param quota tasks of the view allowed to run at once
+     * @return view
+     */
+    public FabricView cpuView(String name, int quota) {
+        return register(new FabricView(name, cpuPool, scheduler, quota));
+    }
+
+    /**
+     * Returns the shared timer; plugins schedule on it through a {@link TimerView} which does not own it, so stopping a
+     * plugin cancels only its own timeouts.
+     *
+     * @return timer
+     */
+    public HashedWheelTimer timer() {
+        return timer;
+    }
+
+    private FabricView register(FabricView view) {
+        views.put(view.getName(), view);
+        return view;
+    }
+
+    /**
+     * Drops a view from the accounting.
+     *
+     * @param view
+     */
+    public void remove(FabricView view) {
+        views.remove(view.getName(), view);
+    }
+
+    /**
+     * Returns the views in use.
+     *
+     * @return views
+     */
+    public List<FabricView> getViews() {
+        return new ArrayList<>(views.values());
+    }
+
+    public int getCpuPoolSize() {
+        return cpuPool.getPoolSize();
+    }
+
+    public int getBlockingPoolSize() {
+        return blockingPool.getPoolSize();
+    }
+
+    public int getBlockingQueueSize() {
+        return blockingPool.getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorFabric [cpuPool=" + cpuPool.getPoolSize() + ", blockingPool=" + blockingPool.getPoolSize() + ", blockingQueue="
+                + blockingPool.getQueue().size() + ", scheduled=" + scheduler.getQueue().size() + ", views=" + views.size() + "]";
+    }
+
+}
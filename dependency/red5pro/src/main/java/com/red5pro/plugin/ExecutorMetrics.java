@@ -0,0 +1,267 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Task metrics for one executor: queue wait and execution time histograms, failures and tasks running. Tasks are
+ * wrapped on submission; recording uses atomic counters over preallocated buckets, and running tasks are kept in a
+ * concurrent set so a shutdown can report the ones it interrupts.
+ */
+public class ExecutorMetrics {
+
+    private final String name;
+
+    private final LongAdder submitted = new LongAdder(), completed = new LongAdder(), failed = new LongAdder(),
+            running = new LongAdder();
+
+    private final Histogram queueWait = new Histogram(), execution = new Histogram();
+
+    // tasks running now, for shutdown reporting
+    private final Set<Wrapped> active = ConcurrentHashMap.newKeySet();
+
+    public ExecutorMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Wraps a task to record its queue wait and execution.
+     *
+     * @param task
+     * @return wrapped task
+     */
+    public Runnable wrap(Runnable task) {
+        return wrap(task, true);
+    }
+
+    /**
+     * Wraps a task to record its execution and, optionally, its queue wait. Queue wait is meaningless for delayed and
+     * periodic tasks, which wait on purpose.
+     *
+     * @param task
+     * @param recordWait whether the time from submission to start is queue wait
+     * @return wrapped task
+     */
+    public Runnable wrap(Runnable task, boolean recordWait) {
+        submitted.increment();
+        return new WrappedRunnable(task, recordWait ? System.nanoTime() : 0L, false);
+    }
+
+    /**
+     * Wraps a periodic task to record each run. Every run counts as a submission, so submitted stays equal to completed
+     * plus failed plus running however many times the task repeats.
+     *
+     * @param task
+     * @return wrapped task
+     */
+    public Runnable wrapPeriodic(Runnable task) {
+        return new WrappedRunnable(task, 0L, true);
+    }
+
+    /**
+     * Wraps a task to record its queue wait and execution.
+     *
+     * @param task
+     * @return wrapped task
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return wrap(task, true);
+    }
+
+    /**
+     * Wraps a task to record its execution and, optionally, its queue wait.
+     *
+     * @param task
+     * @param recordWait whether the time from submission to start is queue wait
+     * @return wrapped task
+     */
+    public <T> Callable<T> wrap(Callable<T> task, boolean recordWait) {
+        submitted.increment();
+        return new WrappedCallable<>(task, recordWait ? System.nanoTime() : 0L, false);
+    }
+
+    /**
+     * Returns the tasks running now with their threads, such as those a shutdown is about to interrupt.
+     *
+     * @return task descriptions
+     */
+    public List<String> getRunningTasks() {
+        List<String> tasks = new ArrayList<>();
+        for (Wrapped wrapped : active) {
+            tasks.add(wrapped.toString());
+        }
+        return tasks;
+    }
+
+    // common recording for the wrappers
+    private abstract class Wrapped {
+
+        final Object task;
+
+        final long submittedAt;
+
+        // counted as submitted on every run rather than once when wrapped
+        final boolean periodic;
+
+        volatile Thread thread;
+
+        long start;
+
+        Wrapped(Object task, long submittedAt, boolean periodic) {
+            this.task = task;
+            this.submittedAt = submittedAt;
+            this.periodic = periodic;
+        }
+
+        void begin() {
+            if (periodic) {
+                submitted.increment();
+            }
+            start = System.nanoTime();
+            if (submittedAt != 0L) {
+                queueWait.record(start - submittedAt);
+            }
+            running.increment();
+            thread = Thread.currentThread();
+            active.add(this);
+        }
+
+        void end(boolean ok) {
+            active.remove(this);
+            thread = null;
+            execution.record(System.nanoTime() - start);
+            running.decrement();
+            if (ok) {
+                completed.increment();
+            } else {
+                failed.increment();
+            }
+        }
+
+        @Override
+        public String toString() {
+            Thread current = thread;
+            return current != null ? task + " on " + current.getName() : String.valueOf(task);
+        }
+
+    }
+
+    private final class WrappedRunnable extends Wrapped implements Runnable {
+
+        WrappedRunnable(Runnable task, long submittedAt, boolean periodic) {
+            super(task, submittedAt, periodic);
+        }
+
+        @Override
+        public void run() {
+            begin();
+            boolean ok = false;
+            try {
+                ((Runnable) task).run();
+                ok = true;
+            } finally {
+                end(ok);
+            }
+        }
+
+    }
+
+    private final class WrappedCallable<T> extends Wrapped implements Callable<T> {
+
+        WrappedCallable(Callable<T> task, long submittedAt, boolean periodic) {
+            super(task, submittedAt, periodic);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T call() throws Exception {
+            begin();
+            boolean ok = false;
+            try {
+                T result = ((Callable<T>) task).call();
+                ok = true;
+                return result;
+            } finally {
+                end(ok);
+            }
+        }
+
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the current values.
+     *
+     * @return stats
+     */
+    public ExecutorStats snapshot() {
+        return new ExecutorStats(name, submitted.sum(), completed.sum(), failed.sum(), running.sum(), queueWait.mean(),
+                queueWait.percentile(0.5d), queueWait.percentile(0.99d), queueWait.max(), execution.mean(), execution.percentile(0.5d),
+                execution.percentile(0.99d), execution.max());
+    }
+
+    /**
+     * Power-of-two histogram of durations in microseconds.
+     */
+    static final class Histogram {
+
+        // bucket i counts durations below 2^i microseconds, the last bucket takes the rest
+        private final AtomicLongArray buckets = new AtomicLongArray(40);
+
+        private final LongAdder count = new LongAdder(), total = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0L, nanos));
+            buckets.incrementAndGet(Math.min(buckets.length() - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            count.increment();
+            total.add(micros);
+            if (micros > max.get()) {
+                max.accumulateAndGet(micros, Math::max);
+            }
+        }
+
+        long mean() {
+            long n = count.sum();
+            return n > 0L ? total.sum() / n : 0L;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // upper bound of the bucket holding the percentile
+        long percentile(double p) {
+            long n = 0L;
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            if (n == 0L) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(p * n), seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(1L << i, max.get());
+                }
+            }
+            return max.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.red5pro.plugin;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of {@link ExecutorMetrics}, exposed over JMX as composite data. Times are in microseconds; percentiles are
+ * the upper bound of a power-of-two bucket.
+ */
+public class ExecutorStats {
+
+    private final String name;
+
+    private final long submitted, completed, failed, running;
+
+    private final long queueWaitMean, queueWaitP50, queueWaitP99, queueWaitMax;
+
+    private final long executionMean, executionP50, executionP99, executionMax;
+
+    @ConstructorProperties({ "name", "submitted", "completed", "failed", "running", "queueWaitMean", "queueWaitP50", "queueWaitP99",
+            "queueWaitMax", "executionMean", "executionP50", "executionP99", "executionMax" })
+    public ExecutorStats(String name, long submitted, long completed, long failed, long running, long queueWaitMean, long queueWaitP50,
+            long queueWaitP99, long queueWaitMax, long executionMean, long executionP50, long executionP99, long executionMax) {
+        this.name = name;
+        this.submitted = submitted;
+        this.completed = completed;
+        this.failed = failed;
+        this.running = running;
+        this.queueWaitMean = queueWaitMean;
+        this.queueWaitP50 = queueWaitP50;
+        this.queueWaitP99 = queueWaitP99;
+        this.queueWaitMax = queueWaitMax;
+        this.executionMean = executionMean;
+        this.executionP50 = executionP50;
+        this.executionP99 = executionP99;
+        this.executionMax = executionMax;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getRunning() {
+        return running;
+    }
+
+    public long getQueueWaitMean() {
+        return queueWaitMean;
+    }
+
+    public long getQueueWaitP50() {
+        return queueWaitP50;
+    }
+
+    public long getQueueWaitP99() {
+        return queueWaitP99;
+    }
+
+    public long getQueueWaitMax() {
+        return queueWaitMax;
+    }
+
+    public long getExecutionMean() {
+        return executionMean;
+    }
+
+    public long getExecutionP50() {
+        return executionP50;
+    }
+
+    public long getExecutionP99() {
+        return executionP99;
+    }
+
+    public long getExecutionMax() {
+        return executionMax;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorStats [name=" + name + ", submitted=" + submitted + ", completed=" + completed + ", failed=" + failed + ", running="
+                + running + ", queueWaitMean=" + queueWaitMean + ", queueWaitP99=" + queueWaitP99 + ", executionMean=" + executionMean
+                + ", executionP99=" + executionP99 + "]";
+    }
+
+}
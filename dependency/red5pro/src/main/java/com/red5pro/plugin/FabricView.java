@@ -0,0 +1,381 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A plugin's named view of a shared pool in the {@link ExecutorFabric}. At most quota tasks of the view run in the pool
+ * at once; the rest wait in the view's FIFO queue, so a view with a quota of one runs tasks one at a time in submission
+ * order. Delayed and periodic tasks are timed by the fabric's shared scheduler and run through the view like any other
+ * task. Shutting the view down affects only its own tasks.
+ */
+public class FabricView extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final String name;
+
+    private final Executor pool;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final int quota;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger(), active = new AtomicInteger();
+
+    // tasks running now, for interruption on shutdownNow
+    private final Set<Run> running = ConcurrentHashMap.newKeySet();
+
+    // delayed and periodic tasks not yet done
+    private final Set<ViewTask<?>> delayed = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder submitted = new LongAdder(), completed = new LongAdder(), failed = new LongAdder(), rejected = new LongAdder();
+
+    private volatile boolean shutdown;
+
+    private final Object termination = new Object();
+
+    FabricView(String name, Executor pool, ScheduledExecutorService scheduler, int quota) {
+        this.name = name;
+        this.pool = pool;
+        this.scheduler = scheduler;
+        this.quota = Math.max(1, quota);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            rejected.increment();
+            throw new RejectedExecutionException(name + " is shut down");
+        }
+        submitted.increment();
+        queued.incrementAndGet();
+        queue.add(command);
+        drain();
+    }
+
+    // hands queued tasks to the pool while under quota
+    private void drain() {
+        while (true) {
+            int current = active.get();
+            if (current >= quota || queue.isEmpty()) {
+                return;
+            }
+            if (!active.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable task = queue.poll();
+            if (task == null) {
+                active.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                pool.execute(new Run(task));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                active.decrementAndGet();
+                if (task instanceof FutureTask) {
+                    ((FutureTask<?>) task).cancel(false);
+                }
+            }
+        }
+    }
+
+    // one task running in the pool
+    private final class Run implements Runnable {
+
+        private final Runnable task;
+
+        private Thread thread;
+
+        private boolean done;
+
+        Run(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            running.add(this);
+            try {
+                task.run();
+                completed.increment();
+            } catch (Throwable t) {
+                failed.increment();
+                throw t;
+            } finally {
+                running.remove(this);
+                synchronized (this) {
+                    done = true;
+                }
+                // clear an interrupt meant for this task so it does not leak to the next task on the shared thread
+                Thread.interrupted();
+                active.decrementAndGet();
+                drain();
+                if (shutdown) {
+                    signalIfTerminated();
+                }
+            }
+        }
+
+        synchronized void interrupt() {
+            if (thread != null && !done) {
+                thread.interrupt();
+            }
+        }
+
+        Runnable task() {
+            return task;
+        }
+
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return arm(new ViewTask<Void>(command, null, 0L, System.nanoTime() + unit.toNanos(delay)));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return arm(new ViewTask<V>(callable, System.nanoTime() + unit.toNanos(delay)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return arm(new ViewTask<Void>(command, null, unit.toNanos(period), System.nanoTime() + unit.toNanos(initialDelay)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0L) {
+            throw new IllegalArgumentException("Delay must be positive");
+        }
+        return arm(new ViewTask<Void>(command, null, -unit.toNanos(delay), System.nanoTime() + unit.toNanos(initialDelay)));
+    }
+
+    private <V> ViewTask<V> arm(ViewTask<V> task) {
+        if (shutdown) {
+            rejected.increment();
+            throw new RejectedExecutionException(name + " is shut down");
+        }
+        delayed.add(task);
+        task.arm();
+        return task;
+    }
+
+    /**
+     * A delayed or periodic task; the shared scheduler only hands it to the view when due.
+     */
+    private final class ViewTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        // zero for one-shot, positive for fixed rate and negative for fixed delay
+        private final long period;
+
+        private volatile long time;
+
+        private volatile ScheduledFuture<?> trigger;
+
+        ViewTask(Runnable command, V result, long period, long time) {
+            super(command, result);
+            this.period = period;
+            this.time = time;
+        }
+
+        ViewTask(Callable<V> callable, long time) {
+            super(callable);
+            this.period = 0L;
+            this.time = time;
+        }
+
+        void arm() {
+            try {
+                trigger = scheduler.schedule(this::due, time - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                cancel(false);
+                throw e;
+            }
+        }
+
+        private void due() {
+            try {
+                execute(this);
+            } catch (RejectedExecutionException e) {
+                cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (period == 0L) {
+                super.run();
+            } else if (runAndReset() && !shutdown) {
+                time = period > 0L ? time + period : System.nanoTime() - period;
+                arm();
+            }
+        }
+
+        @Override
+        protected void done() {
+            delayed.remove(this);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            ScheduledFuture<?> current = trigger;
+            if (cancelled && current != null) {
+                current.cancel(false);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return other == this ? 0 : Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        // delayed and periodic tasks are dropped, queued tasks still run
+        for (ViewTask<?> task : delayed) {
+            task.cancel(false);
+        }
+        signalIfTerminated();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> drained = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            queued.decrementAndGet();
+            drained.add(task);
+        }
+        for (Run run : running) {
+            run.interrupt();
+        }
+        signalIfTerminated();
+        return drained;
+    }
+
+    /**
+     * Returns the tasks running now.
+     *
+     * @return tasks
+     */
+    public List<Runnable> getRunningTasks() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (Run run : running) {
+            tasks.add(run.task());
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && active.get() == 0 && queue.isEmpty();
+    }
+
+    private void signalIfTerminated() {
+        if (isTerminated()) {
+            synchronized (termination) {
+                termination.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (termination) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(termination, remaining);
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQuota() {
+        return quota;
+    }
+
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getDelayedCount() {
+        return delayed.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "FabricView [name=" + name + ", quota=" + quota + ", active=" + getActiveCount() + ", queued=" + getQueueSize()
+                + ", delayed=" + getDelayedCount() + ", submitted=" + getSubmitted() + ", completed=" + getCompleted() + ", failed="
+                + getFailed() + ", rejected=" + getRejected() + "]";
+    }
+
+}
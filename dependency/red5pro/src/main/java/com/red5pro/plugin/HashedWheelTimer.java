@@ -0,0 +1,366 @@
+package com.red5pro.plugin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timer for very many one-shot delays, such as per-stream creation timeouts. Timeouts are hashed into a ring of buckets
+ * by expiry tick, so scheduling and cancellation are O(1) and a single thread advances the ring once per tick. Expiry
+ * accuracy is one tick. Expired tasks are handed to an executor rather than run on the timer thread, which is started
+ * on first use.
+ */
+public class HashedWheelTimer {
+
+    private static Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int INIT = 0, STARTED = 1, STOPPED = 2;
+
+    private final ThreadFactory threadFactory;
+
+    private final Executor executor;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    // new and cancelled timeouts, handed to the timer thread
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>(), cancelled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger state = new AtomicInteger(INIT);
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private volatile long startTime;
+
+    private Thread worker;
+
+    /**
+     * Creates a timer.
+     *
+     * @param threadFactory factory for the timer thread
+     * @param executor executor expired tasks are run on
+     * @param tickMs tick duration in milliseconds
+     * @param wheelSize number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory, Executor executor, long tickMs, int wheelSize) {
+        this.threadFactory = threadFactory;
+        this.executor = executor;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMs));
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @return future for the task, cancelling it removes the timeout
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, executor);
+    }
+
+    /**
+     * Schedules a task to run once after a delay on the given executor; Runnable::run runs it on the timer thread, which
+     * suits only short tasks.
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @param executor executor the task is run on
+     * @return future for the task, cancelling it removes the timeout
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        start();
+        Timeout timeout = new Timeout(task, executor, System.nanoTime() + unit.toNanos(Math.max(0L, delay)) - startTime);
+        if (state.get() == STOPPED) {
+            timeout.cancel(false);
+            return timeout;
+        }
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        // stopped meanwhile, the timer thread's final drain may have missed it; whichever side takes it cancels it
+        if (state.get() == STOPPED && scheduled.remove(timeout)) {
+            pending.decrementAndGet();
+            timeout.cancel(false);
+        }
+        return timeout;
+    }
+
+    private void start() {
+        if (state.get() == INIT && state.compareAndSet(INIT, STARTED)) {
+            worker = threadFactory.newThread(this::run);
+            worker.start();
+        }
+        // the first schedule waits for the start time to be set, as deadlines are relative to it; an interrupt is kept for
+        // the caller rather than ending the wait early
+        boolean interrupted = false;
+        while (startTime == 0L && state.get() == STARTED) {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the timer, cancelling every timeout not yet expired.
+     */
+    public void stop() {
+        if (state.getAndSet(STOPPED) == STARTED) {
+            worker.interrupt();
+        }
+        started.countDown();
+    }
+
+    /**
+     * Returns the number of timeouts waiting to expire.
+     *
+     * @return count
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    private void run() {
+        long now = System.nanoTime();
+        // zero marks the start time as unset
+        startTime = now == 0L ? 1L : now;
+        started.countDown();
+        long tick = 0L;
+        while (state.get() == STARTED) {
+            if (!waitForNextTick(tick)) {
+                break;
+            }
+            removeCancelled();
+            transferScheduled(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+        // cancel what is left
+        for (Bucket bucket : wheel) {
+            bucket.cancelAll();
+        }
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            pending.decrementAndGet();
+            timeout.cancel(false);
+        }
+        cancelled.clear();
+    }
+
+    // sleeps until the end of the tick, returning false if stopped
+    private boolean waitForNextTick(long tick) {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0L) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (state.get() == STOPPED) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void transferScheduled(long tick) {
+        // cap per tick so a flood of new timeouts cannot stall the wheel
+        for (int i = 0; i < 100000; i++) {
+            Timeout timeout = scheduled.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.isCancelled()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long expiryTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+            // a timeout already due goes into the current bucket
+            wheel[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A task told when its timeout ends without running it: cancelled, dropped by a stopping timer or rejected by the
+     * executor.
+     */
+    public interface Task extends Runnable {
+
+        void dropped();
+
+    }
+
+    /**
+     * A scheduled one-shot task.
+     */
+    public final class Timeout extends FutureTask<Object> {
+
+        private final Runnable task;
+
+        private final Executor executor;
+
+        // expiry in nanoseconds from the timer start
+        private final long deadline;
+
+        private volatile boolean started;
+
+        // wheel state, touched only by the timer thread
+        long remainingRounds;
+
+        Timeout prev, next;
+
+        Bucket bucket;
+
+        Timeout(Runnable task, Executor executor, long deadline) {
+            super(task, null);
+            this.task = task;
+            this.executor = executor;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            if (!started && task instanceof Task) {
+                ((Task) task).dropped();
+            }
+        }
+
+        /**
+         * Returns the time left before expiry.
+         *
+         * @param unit
+         * @return delay, zero or negative once due
+         */
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            if (result && state.get() == STARTED) {
+                cancelled.add(this);
+            }
+            return result;
+        }
+
+        void fire() {
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                log.warn("Timeout task rejected", t);
+                setException(t);
+            }
+        }
+
+    }
+
+    // doubly linked list of timeouts, touched only by the timer thread
+    private final class Bucket {
+
+        private Timeout head, tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            pending.decrementAndGet();
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0L) {
+                    // due within this tick by placement
+                    remove(timeout);
+                    timeout.fire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void cancelAll() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                remove(timeout);
+                timeout.cancel(false);
+                timeout = next;
+            }
+        }
+
+    }
+
+}
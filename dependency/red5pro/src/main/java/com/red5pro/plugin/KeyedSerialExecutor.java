@@ -0,0 +1,289 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks on a shared executor one at a time and in submission order per key, such as a stream name, while tasks of
+ * different keys run in parallel. A key has an entry only while it has a task running or waiting, so idle keys hold no
+ * memory. Each entry's state changes atomically through the map, which removes the entry once the key's last task is
+ * done. A task dropped by the executor must be cancelled, as bounded and stopping plugin executors do, so its key moves
+ * on.
+ */
+public class KeyedSerialExecutor {
+
+    private static Logger log = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+
+    private final ConcurrentHashMap<Object, KeyQueue> keys = new ConcurrentHashMap<>();
+
+    private final AtomicInteger maxBacklog = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder(), rejected = new LongAdder();
+
+    private final ThreadLocal<Handoff> handoffs = ThreadLocal.withInitial(Handoff::new);
+
+    private volatile boolean shutdown;
+
+    public KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a task to run after the tasks already submitted for its key.
+     *
+     * @param key
+     * @param task
+     * @return Future
+     */
+    public Future<?> submit(Object key, Runnable task) {
+        KeyedTask<Void> future = new KeyedTask<>(key, Executors.callable(task, (Void) null));
+        execute(future);
+        return future;
+    }
+
+    /**
+     * Submits a task to run after the tasks already submitted for its key.
+     *
+     * @param key
+     * @param task
+     * @return Future
+     */
+    public <T> Future<T> submit(Object key, Callable<T> task) {
+        KeyedTask<T> future = new KeyedTask<>(key, task);
+        execute(future);
+        return future;
+    }
+
+    private void execute(KeyedTask<?> task) {
+        if (shutdown) {
+            rejected.increment();
+            throw new RejectedExecutionException("Keyed executor is shut down");
+        }
+        submitted.increment();
+        boolean[] first = new boolean[1];
+        keys.compute(task.key, (k, queue) -> {
+            if (queue == null) {
+                // nothing running for the key, the task starts now
+                first[0] = true;
+                queue = new KeyQueue();
+                queue.current = task;
+                return queue;
+            }
+            queue.pending.add(task);
+            int backlog = queue.backlog = queue.pending.size();
+            if (backlog > maxBacklog.get()) {
+                maxBacklog.accumulateAndGet(backlog, Math::max);
+            }
+            return queue;
+        });
+        if (first[0]) {
+            dispatch(task);
+        }
+    }
+
+    /**
+     * Hands a task to the executor. An executor running tasks on the caller, or rejecting them, completes the task before
+     * execute returns, which advances its key and dispatches the next task; that task is handed over by the outer loop
+     * here rather than by recursion, so the stack does not grow with the backlog.
+     */
+    private void dispatch(KeyedTask<?> task) {
+        Handoff handoff = handoffs.get();
+        if (handoff.active) {
+            handoff.tasks.add(task);
+            return;
+        }
+        handoff.active = true;
+        try {
+            while (task != null) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    rejected.increment();
+                    log.debug("Task for key {} rejected", task.key);
+                    task.cancel(false);
+                }
+                task = handoff.tasks.poll();
+            }
+        } finally {
+            handoff.active = false;
+        }
+    }
+
+    // moves a key past its finished task, removing the entry when nothing is left
+    private void advance(KeyedTask<?> finished) {
+        KeyedTask<?>[] next = new KeyedTask<?>[1];
+        keys.computeIfPresent(finished.key, (k, queue) -> {
+            // a task cancelled while waiting is not the key's current task and is skipped when reached
+            if (queue.current != finished) {
+                return queue;
+            }
+            KeyedTask<?> task = queue.pending.poll();
+            while (task != null && task.isDone()) {
+                task = queue.pending.poll();
+            }
+            queue.backlog = queue.pending.size();
+            queue.current = next[0] = task;
+            return task != null ? queue : null;
+        });
+        if (next[0] != null) {
+            dispatch(next[0]);
+        }
+    }
+
+    /**
+     * Rejects further tasks and cancels the tasks waiting behind each key's current task. Current tasks complete, or are
+     * cancelled, with the executor they were handed to.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Object key : keys.keySet()) {
+            List<KeyedTask<?>> waiting = new ArrayList<>();
+            keys.computeIfPresent(key, (k, queue) -> {
+                waiting.addAll(queue.pending);
+                queue.pending.clear();
+                queue.backlog = 0;
+                return queue;
+            });
+            for (KeyedTask<?> task : waiting) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Returns the number of tasks waiting for a key, not counting the one running.
+     *
+     * @param key
+     * @return backlog
+     */
+    public int getBacklog(Object key) {
+        KeyQueue queue = keys.get(key);
+        return queue != null ? queue.backlog : 0;
+    }
+
+    /**
+     * Returns the backlog of every key with tasks waiting.
+     *
+     * @return backlog per key
+     */
+    public Map<Object, Integer> getBacklogs() {
+        Map<Object, Integer> backlogs = new HashMap<>();
+        keys.forEach((key, queue) -> {
+            int backlog = queue.backlog;
+            if (backlog > 0) {
+                backlogs.put(key, backlog);
+            }
+        });
+        return backlogs;
+    }
+
+    /**
+     * Returns the number of keys with a task running or waiting.
+     *
+     * @return key count
+     */
+    public int getActiveKeys() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the largest backlog seen for any key.
+     *
+     * @return backlog
+     */
+    public int getMaxBacklog() {
+        return maxBacklog.get();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * A task of one key; its completion by any means, including cancellation when an executor drops it, advances the key.
+     */
+    private final class KeyedTask<T> extends FutureTask<T> {
+
+        final Object key;
+
+        private volatile boolean started;
+
+        KeyedTask(Object key, Callable<T> task) {
+            super(task);
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            try {
+                super.run();
+            } finally {
+                // cancelled while running, the key waits for the task to unwind
+                if (isCancelled()) {
+                    advance(this);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!started || !isCancelled()) {
+                advance(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "KeyedTask [key=" + key + "]";
+        }
+
+    }
+
+    // the running task and those waiting for one key; changed only inside map compute calls, which hold the entry's lock
+    private static final class KeyQueue {
+
+        final ArrayDeque<KeyedTask<?>> pending = new ArrayDeque<>(4);
+
+        KeyedTask<?> current;
+
+        // size of pending, readable outside the map lock
+        volatile int backlog;
+
+    }
+
+    // tasks completed inline during a dispatch on this thread, handed to the executor by that dispatch's loop
+    private static final class Handoff {
+
+        final ArrayDeque<KeyedTask<?>> tasks = new ArrayDeque<>();
+
+        boolean active;
+
+    }
+
+}
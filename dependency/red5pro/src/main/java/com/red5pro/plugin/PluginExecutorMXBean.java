@@ -0,0 +1,32 @@
+package com.red5pro.plugin;
+
+import java.util.Map;
+
+/**
+ * Management interface for a plugin's executor metrics.
+ */
+public interface PluginExecutorMXBean {
+
+    String getPluginName();
+
+    ExecutorStats getGeneral();
+
+    ExecutorStats getQueued();
+
+    ExecutorStats getScheduled();
+
+    ExecutorStats getKeyed();
+
+    int getKeyedActiveKeys();
+
+    int getKeyedMaxBacklog();
+
+    Map<String, Integer> getKeyedBacklogs();
+
+    int getQueueSize();
+
+    int getActiveThreadCount();
+
+    long getSaturatedTaskCount();
+
+}
@@ -0,0 +1,142 @@
+package com.red5pro.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor metrics of one plugin, registered as an MBean named com.red5pro.plugin:type=PluginExecutor,name=&lt;plugin
+ * name&gt;.
+ */
+public class PluginExecutorMetrics implements PluginExecutorMXBean {
+
+    private static Logger log = LoggerFactory.getLogger(PluginExecutorMetrics.class);
+
+    // instance registered under each name, guarded by itself so it always matches the MBean server
+    private static final Map<ObjectName, PluginExecutorMetrics> registered = new HashMap<>();
+
+    private final Red5ProPlugin plugin;
+
+    final ExecutorMetrics general = new ExecutorMetrics("executor"), queued = new ExecutorMetrics("queuedExecutor"),
+            scheduled = new ExecutorMetrics("scheduledExecutor"), keyed = new ExecutorMetrics("keyedExecutor");
+
+    private ObjectName objectName;
+
+    PluginExecutorMetrics(Red5ProPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Returns the metrics of every executor.
+     *
+     * @return metrics
+     */
+    ExecutorMetrics[] all() {
+        return new ExecutorMetrics[] { general, queued, scheduled, keyed };
+    }
+
+    /**
+     * Registers the MBean, replacing one left by an earlier instance of the plugin.
+     */
+    void register() {
+        synchronized (registered) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                objectName = new ObjectName("com.red5pro.plugin:type=PluginExecutor,name=" + ObjectName.quote(plugin.getName()));
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(this, objectName);
+                registered.put(objectName, this);
+            } catch (Exception e) {
+                log.warn("Executor metrics MBean not registered for {}", plugin.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBean if it is still this instance, leaving one registered since by a newer instance of the plugin in
+     * place.
+     */
+    void unregister() {
+        if (objectName != null) {
+            synchronized (registered) {
+                if (!registered.remove(objectName, this)) {
+                    return;
+                }
+                try {
+                    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                    if (server.isRegistered(objectName)) {
+                        server.unregisterMBean(objectName);
+                    }
+                } catch (Exception e) {
+                    log.debug("Exception unregistering executor metrics MBean", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getPluginName() {
+        return plugin.getName();
+    }
+
+    @Override
+    public ExecutorStats getGeneral() {
+        return general.snapshot();
+    }
+
+    @Override
+    public ExecutorStats getQueued() {
+        return queued.snapshot();
+    }
+
+    @Override
+    public ExecutorStats getScheduled() {
+        return scheduled.snapshot();
+    }
+
+    @Override
+    public ExecutorStats getKeyed() {
+        return keyed.snapshot();
+    }
+
+    @Override
+    public int getKeyedActiveKeys() {
+        return plugin.keyedExecutor.getActiveKeys();
+    }
+
+    @Override
+    public int getKeyedMaxBacklog() {
+        return plugin.keyedExecutor.getMaxBacklog();
+    }
+
+    @Override
+    public Map<String, Integer> getKeyedBacklogs() {
+        Map<String, Integer> backlogs = new HashMap<>();
+        plugin.keyedExecutor.getBacklogs().forEach((key, backlog) -> backlogs.put(String.valueOf(key), backlog));
+        return backlogs;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return plugin.getThreadQueueSize();
+    }
+
+    @Override
+    public int getActiveThreadCount() {
+        return plugin.getActiveThreadCount();
+    }
+
+    @Override
+    public long getSaturatedTaskCount() {
+        return plugin.getSaturatedTaskCount();
+    }
+
+}
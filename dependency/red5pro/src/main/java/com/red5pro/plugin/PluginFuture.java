@@ -0,0 +1,28 @@
+package com.red5pro.plugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A future whose async continuations without an explicit executor run on a plugin executor rather than the common pool.
+ * Dependent stages inherit the executor.
+ */
+class PluginFuture<T> extends CompletableFuture<T> {
+
+    final Executor executor;
+
+    PluginFuture(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor defaultExecutor() {
+        return executor;
+    }
+
+    @Override
+    public <U> CompletableFuture<U> newIncompleteFuture() {
+        return new PluginFuture<>(executor);
+    }
+
+}
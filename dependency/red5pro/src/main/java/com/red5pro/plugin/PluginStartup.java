@@ -0,0 +1,253 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.FileSystemXmlApplicationContext;
+
+import com.red5pro.service.IRed5ProService;
+
+/**
+ * Coordinates plugin startup. A plugin starts once the server is ready and the plugins and services it depends on have
+ * started, so plugins with no dependency between them start in parallel on their own executors. A timeline of each
+ * plugin's startup is kept for reporting.
+ */
+public class PluginStartup {
+
+    private static Logger log = LoggerFactory.getLogger(PluginStartup.class);
+
+    // started plugins by name, created on first reference so dependents may wait on plugins not yet loaded
+    private static final ConcurrentHashMap<String, CompletableFuture<Red5ProPlugin>> plugins = new ConcurrentHashMap<>();
+
+    // registered services by name, created on first reference
+    private static final ConcurrentHashMap<String, CompletableFuture<IRed5ProService>> services = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    // time allowed for dependencies to be met before a plugin's startup fails
+    private static volatile long dependencyTimeoutMs = 60000L;
+
+    /**
+     * Returns the future completed when the named plugin has started.
+     *
+     * @param name plugin name
+     * @return future
+     */
+    public static CompletableFuture<Red5ProPlugin> plugin(String name) {
+        return plugins.computeIfAbsent(name, k -> new CompletableFuture<>());
+    }
+
+    /**
+     * Returns the future completed when the named service is registered.
+     *
+     * @param name service name
+     * @return future
+     */
+    public static CompletableFuture<IRed5ProService> service(String name) {
+        return services.computeIfAbsent(name, k -> new CompletableFuture<>());
+    }
+
+    static boolean registerService(String name, IRed5ProService instance) {
+        CompletableFuture<IRed5ProService> future = service(name);
+        if (future.complete(instance)) {
+            return true;
+        }
+        // replace a registration from an earlier start
+        return services.replace(name, future, CompletableFuture.completedFuture(instance));
+    }
+
+    static boolean unregisterService(String name) {
+        CompletableFuture<IRed5ProService> future = services.get(name);
+        return future != null && future.isDone() && services.remove(name, future);
+    }
+
+    static IRed5ProService getService(String name) {
+        CompletableFuture<IRed5ProService> future = services.get(name);
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    /**
+     * Starts a plugin on its executor once the server is ready and its dependencies have started.
+     *
+     * @param plugin
+     * @param configContext
+     * @param ready server readiness
+     * @param executor executor to run the plugin's start on
+     * @return future completed when the plugin has started
+     */
+    static CompletableFuture<Red5ProPlugin> start(Red5ProPlugin plugin, FileSystemXmlApplicationContext configContext,
+            CompletableFuture<Void> ready, Executor executor) {
+        final String name = plugin.getName();
+        Set<String> pluginDependencies = plugin.getPluginDependencies();
+        Set<String> serviceDependencies = plugin.getServiceDependencies();
+        final Timeline timeline = new Timeline(name, pluginDependencies, serviceDependencies);
+        timelines.put(name, timeline);
+        List<CompletableFuture<?>> waits = new ArrayList<>();
+        waits.add(ready);
+        pluginDependencies.forEach(dependency -> waits.add(plugin(dependency)));
+        serviceDependencies.forEach(dependency -> waits.add(service(dependency)));
+        final CompletableFuture<Red5ProPlugin> started = plugin(name);
+        CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0])).orTimeout(dependencyTimeoutMs, TimeUnit.MILLISECONDS)
+                .thenRunAsync(() -> {
+                    timeline.dependenciesMet = System.nanoTime();
+                    try {
+                        plugin.doStartProPlugin(configContext);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor).whenComplete((result, failure) -> {
+                    timeline.completed = System.nanoTime();
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause()
+                                : failure;
+                        if (cause instanceof TimeoutException) {
+                            timeline.failure = "dependencies not met: " + unmet(pluginDependencies, serviceDependencies);
+                        } else if (timeline.dependenciesMet == 0L) {
+                            timeline.failure = "dependency failed: " + cause;
+                        } else {
+                            timeline.failure = cause.toString();
+                        }
+                        log.warn("Plugin {} failed to start: {}", name, timeline);
+                        started.completeExceptionally(cause);
+                    } else {
+                        log.info("Plugin {} started: {}", name, timeline);
+                        started.complete(plugin);
+                    }
+                });
+        return started;
+    }
+
+    private static List<String> unmet(Set<String> pluginDependencies, Set<String> serviceDependencies) {
+        List<String> unmet = new ArrayList<>();
+        pluginDependencies.stream().filter(dependency -> !plugin(dependency).isDone()).forEach(unmet::add);
+        serviceDependencies.stream().filter(dependency -> !service(dependency).isDone()).map(dependency -> "service:" + dependency)
+                .forEach(unmet::add);
+        return unmet;
+    }
+
+    /**
+     * Forgets a stopped plugin's start, so dependents started afterward wait for it to start again.
+     *
+     * @param name plugin name
+     */
+    static void stopped(String name) {
+        CompletableFuture<Red5ProPlugin> future = plugins.get(name);
+        if (future != null && future.isDone()) {
+            plugins.remove(name, future);
+        }
+    }
+
+    /**
+     * Returns the startup timelines in the order the plugins were queued.
+     *
+     * @return timelines
+     */
+    public static List<Timeline> getTimelines() {
+        List<Timeline> list = new ArrayList<>(timelines.values());
+        list.sort(Comparator.comparingLong(timeline -> timeline.queued));
+        return list;
+    }
+
+    /**
+     * Returns a report of the startup timelines, one line per plugin, with times relative to the first plugin queued.
+     *
+     * @return report
+     */
+    public static String getReport() {
+        List<Timeline> list = getTimelines();
+        StringBuilder sb = new StringBuilder();
+        long origin = list.isEmpty() ? 0L : list.get(0).queued;
+        for (Timeline timeline : list) {
+            sb.append('+').append(TimeUnit.NANOSECONDS.toMillis(timeline.queued - origin)).append("ms ")
+                    .append(timeline).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static long getDependencyTimeoutMs() {
+        return dependencyTimeoutMs;
+    }
+
+    public static void setDependencyTimeoutMs(long dependencyTimeoutMs) {
+        PluginStartup.dependencyTimeoutMs = dependencyTimeoutMs;
+    }
+
+    /**
+     * Startup times of one plugin.
+     */
+    public static final class Timeline {
+
+        private final String name;
+
+        private final Set<String> pluginDependencies, serviceDependencies;
+
+        private final long queued = System.nanoTime();
+
+        private volatile long dependenciesMet, completed;
+
+        private volatile String failure;
+
+        Timeline(String name, Set<String> pluginDependencies, Set<String> serviceDependencies) {
+            this.name = name;
+            this.pluginDependencies = pluginDependencies;
+            this.serviceDependencies = serviceDependencies;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the time spent waiting for readiness and dependencies.
+         *
+         * @return milliseconds or -1 if still waiting
+         */
+        public long getWaitMs() {
+            long met = dependenciesMet;
+            return met != 0L ? TimeUnit.NANOSECONDS.toMillis(met - queued) : -1L;
+        }
+
+        /**
+         * Returns the time spent in the plugin's own start.
+         *
+         * @return milliseconds or -1 if not started or not complete
+         */
+        public long getStartMs() {
+            long met = dependenciesMet, done = completed;
+            return met != 0L && done != 0L ? TimeUnit.NANOSECONDS.toMillis(done - met) : -1L;
+        }
+
+        /**
+         * Returns the time from queueing to completion.
+         *
+         * @return milliseconds or -1 if not complete
+         */
+        public long getTotalMs() {
+            long done = completed;
+            return done != 0L ? TimeUnit.NANOSECONDS.toMillis(done - queued) : -1L;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Timeline [name=" + name + ", plugins=" + pluginDependencies + ", services=" + serviceDependencies + ", waitMs="
+                    + getWaitMs() + ", startMs=" + getStartMs() + ", totalMs=" + getTotalMs() + (failure != null ? ", failure=" + failure : "")
+                    + "]";
+        }
+
+    }
+
+}
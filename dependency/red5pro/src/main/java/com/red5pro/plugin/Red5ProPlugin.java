@@ -5,17 +5,29 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -32,7 +44,11 @@ import org.springframework.context.support.FileSystemXmlApplicationContext;
 import com.google.gson.JsonObject;
 import com.red5pro.media.rtp.RTPCodecEnum;
 import com.red5pro.server.event.ServerEvent;
+import com.red5pro.server.event.ServerEventDispatcher;
 import com.red5pro.server.event.ServerEventListener;
+import com.red5pro.server.event.ServerEventMessage;
+import com.red5pro.server.event.ServerEventRegistry;
+import com.red5pro.server.event.StickyServerEvents;
 import com.red5pro.server.stream.Red5ProThreadFactory;
 import com.red5pro.service.IRed5ProService;
 import com.red5pro.servlet.filter.CorsConfig;
@@ -48,15 +64,75 @@ public abstract class Red5ProPlugin extends Red5Plugin {
 
     private static Logger log = LoggerFactory.getLogger(Red5ProPlugin.class);
 
-    // ready state flag
-    protected static boolean ready;
+    /**
+     * Ready state flag, kept in step by {@link #setReady(boolean)}.
+     *
+     * @deprecated use {@link #setReady(boolean)}; a direct write is only picked up by the next call to isReady, whenReady
+     *             or startProPlugin
+     */
+    @Deprecated
+    protected static volatile boolean ready;
+
+    // ready state, completed when the server is ready and replaced if it becomes not ready
+    private static volatile CompletableFuture<Void> readiness = new CompletableFuture<>();
+
+    // event listeners indexed by event type - ideally for internal events between plugins
+    protected static ServerEventRegistry eventListeners = new ServerEventRegistry();
+
+    // delivers server events on lanes keyed by listener owner, shared by all plugins
+    protected static ServerEventDispatcher eventDispatcher = new ServerEventDispatcher(
+            Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())), 1024, ServerEventDispatcher.OverflowPolicy.DROP_NEWEST,
+            100L);
+
+    // last event per type and source, replayed to listeners which ask for it on registration; also guards dispatch against
+    // registration so a replayed event is never delivered twice or out of order
+    protected static StickyServerEvents stickyEvents = new StickyServerEvents();
+
+    /**
+     * Kinds of thread backing a plugin's general executor.
+     */
+    public enum ExecutionMode {
+        /** cached pool of platform threads */
+        PLATFORM,
+        /** a new virtual thread per task on Java 21+, falling back to PLATFORM on older JVMs */
+        VIRTUAL,
+        /** pool of core to max platform threads over a bounded queue, applying the saturation policy when full */
+        BOUNDED,
+        /** quota-limited views of the server-wide {@link ExecutorFabric} in place of per-plugin pools */
+        SHARED;
+    }
+
+    /**
+     * What a bounded executor does with a task when its threads are busy and its queue is full.
+     */
+    public enum SaturationPolicy {
+        /** run the task on the submitting thread */
+        CALLER_RUNS,
+        /** cancel the oldest queued task and queue this one */
+        DROP_OLDEST,
+        /** throw a RejectedExecutionException */
+        REJECT;
+    }
 
-    // event listeners - ideally for internal events between plugins
-    protected static ConcurrentSkipListSet<ServerEventListener> eventListeners = new ConcurrentSkipListSet<>();
+    // thread kind for the general executor of plugins created from here on
+    private static ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    // sizing and saturation policy of bounded executors; the queued executor keeps one thread, shares the queue capacity
+    // and rejects where the policy is caller-runs
+    private static int boundedCoreSize = Runtime.getRuntime().availableProcessors(), boundedMaxSize = boundedCoreSize * 4,
+            boundedQueueCapacity = 1024;
+
+    private static SaturationPolicy saturationPolicy = SaturationPolicy.CALLER_RUNS;
+
+    // tasks of a plugin's general executor allowed to run at once in shared mode
+    private static int sharedQuota = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
 
     // size of the scheduled pool (per plugin). Previously used "availableCPUs * 2" which was too large on some multicore boxes
     private static int scheduledPoolSize = Math.min(16, (Runtime.getRuntime().availableProcessors() * 2)); // picks the smaller of the two so we don't over-allocate
 
+    // overall time a plugin stop allows its executors to drain, the last part of which is left for interrupted tasks to unwind
+    private static long shutdownTimeoutMs = 5000L;
+
     // Stream name illegal character filter regex, for publishers
     public static String safeStreamRegEx = "[=+^:,/]";
 
@@ -153,63 +229,268 @@ public abstract class Red5ProPlugin extends Red5Plugin {
     // scope resolver for use by plugins, set up with single global scope at startup; if global scopes increase we'll need to address it
     protected static ScopeResolver scopeResolver;
 
+    // Per-instance count of tasks which found a bounded executor saturated
+    protected final LongAdder saturatedTasks = new LongAdder();
+
     // Per-instance executor for any / all general tasks
-    protected ExecutorService executor = Executors.newCachedThreadPool(new Red5ProThreadFactory(true, "%s", getName()));
+    protected ExecutorService executor = newExecutor(getName());
 
-    // Per-instance single threaded executor utilizing an unbounded work queue
-    protected ExecutorService queuedExecutor = Executors.newSingleThreadExecutor(new Red5ProThreadFactory(true, "%s-que", getName()));
+    // Per-instance single threaded executor utilizing a work queue, unbounded unless in bounded mode; a full bounded queue
+    // rejects or drops the oldest rather than running the task on the caller, alongside the queue thread
+    protected ExecutorService queuedExecutor = newQueuedExecutor(getName());
 
     // Per-instance scheduled executor for scheduled tasks
-    protected ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(scheduledPoolSize,
-            new Red5ProThreadFactory(true, "%s-sched", getName()));
+    protected ScheduledExecutorService scheduledExecutor = executionMode == ExecutionMode.SHARED
+            ? ExecutorFabric.get().blockingView(getName() + "-sched", scheduledPoolSize)
+            : Executors.newScheduledThreadPool(scheduledPoolSize, new Red5ProThreadFactory(true, "%s-sched", getName()));
+
+    // Per-instance executor for CPU-bound tasks, on the shared work-stealing pool in shared mode and the general executor otherwise
+    protected ExecutorService computeExecutor = executionMode == ExecutionMode.SHARED
+            ? ExecutorFabric.get().cpuView(getName() + "-cpu", Runtime.getRuntime().availableProcessors())
+            : executor;
+
+    // Per-instance task metrics for the executors, published over JMX
+    protected PluginExecutorMetrics executorMetrics = registerExecutorMetrics();
+
+    // Per-instance timer for one-shot delayed tasks, expired tasks run on the general executor; in shared mode a view of the
+    // fabric's wheel rather than a thread of its own
+    protected TimerView timer = newTimer(getName());
+
+    // Per-instance ordered execution per key, such as a stream name, on the general executor
+    protected KeyedSerialExecutor keyedExecutor = new KeyedSerialExecutor(task -> executor.execute(task));
+
+    // Per-instance stop signal, completed when the plugin begins to stop
+    protected final CompletableFuture<Void> stopping = new CompletableFuture<>();
+
+    // Per-instance report of the last stop
+    protected volatile ShutdownReport shutdownReport;
+
+    // Per-instance lifecycle scopes, such as streams, whose async tasks are cancelled together when the scope closes
+    protected final ConcurrentHashMap<String, TaskScope> taskScopes = new ConcurrentHashMap<>();
 
     public abstract void doStartProPlugin(FileSystemXmlApplicationContext configContext) throws IOException;
 
+    private PluginExecutorMetrics registerExecutorMetrics() {
+        PluginExecutorMetrics metrics = new PluginExecutorMetrics(this);
+        metrics.register();
+        return metrics;
+    }
+
+    private TimerView newTimer(String name) {
+        if (executionMode == ExecutionMode.SHARED) {
+            return new TimerView(ExecutorFabric.get().timer(), task -> executor.execute(task), false);
+        }
+        return new TimerView(new HashedWheelTimer(new Red5ProThreadFactory(true, "%s-timer", name), Runnable::run, 10L, 512),
+                task -> executor.execute(task), true);
+    }
+
+    private ExecutorService newQueuedExecutor(String name) {
+        switch (executionMode) {
+            case SHARED:
+                return ExecutorFabric.get().blockingView(name + "-que", 1);
+            case BOUNDED:
+                SaturationPolicy policy = saturationPolicy == SaturationPolicy.CALLER_RUNS ? SaturationPolicy.REJECT : saturationPolicy;
+                return newBoundedExecutor(1, 1, policy, new Red5ProThreadFactory(true, "%s-que", name));
+            default:
+                return Executors.newSingleThreadExecutor(new Red5ProThreadFactory(true, "%s-que", name));
+        }
+    }
+
+    /**
+     * Creates a pool over a bounded queue which applies the saturation policy when full, counting each saturated task.
+     *
+     * @param coreSize
+     * @param maxSize
+     * @param policy
+     * @param threadFactory
+     * @return executor
+     */
+    private ThreadPoolExecutor newBoundedExecutor(int coreSize, int maxSize, SaturationPolicy policy, ThreadFactory threadFactory) {
+        RejectedExecutionHandler handler = (task, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            saturatedTasks.increment();
+            switch (policy) {
+                case CALLER_RUNS:
+                    task.run();
+                    break;
+                case DROP_OLDEST:
+                    Runnable oldest = pool.getQueue().poll();
+                    // cancel so anyone waiting on the dropped task is released
+                    if (oldest instanceof Future) {
+                        ((Future<?>) oldest).cancel(false);
+                    }
+                    pool.execute(task);
+                    break;
+                default:
+                    throw new RejectedExecutionException("Executor saturated");
+            }
+        };
+        return new ThreadPoolExecutor(coreSize, maxSize, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(boundedQueueCapacity),
+                threadFactory, handler);
+    }
+
+    /**
+     * Creates the general executor for the configured execution mode. Virtual threads are created through
+     * Executors.newThreadPerTaskExecutor, looked up reflectively as it is not available on Java 11.
+     *
+     * @param name plugin name
+     * @return executor
+     */
+    private ExecutorService newExecutor(String name) {
+        if (executionMode == ExecutionMode.SHARED) {
+            return ExecutorFabric.get().blockingView(name, sharedQuota);
+        }
+        if (executionMode == ExecutionMode.BOUNDED) {
+            return newBoundedExecutor(boundedCoreSize, Math.max(boundedCoreSize, boundedMaxSize), saturationPolicy,
+                    new Red5ProThreadFactory(true, "%s", name));
+        }
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            if (Red5ProThreadFactory.isVirtualThreadSupported()) {
+                try {
+                    return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null,
+                            Red5ProThreadFactory.virtual(true, "%s", name));
+                } catch (Exception e) {
+                    log.warn("Virtual thread executor not available for {}, using platform threads", name, e);
+                }
+            } else {
+                log.info("Virtual threads not supported on this JVM, using platform threads for {}", name);
+            }
+        }
+        return Executors.newCachedThreadPool(new Red5ProThreadFactory(true, "%s", name));
+    }
+
     /**
-     * Called by ProPluginator.doStop() to provide clean shutdown of plugins.
+     * Called by ProPluginator.doStop() to provide clean shutdown of plugins. The executors drain in parallel under the
+     * shutdown deadline; tasks still running near its end are interrupted and listed in the shutdown report.
      *
      * @throws Exception
      */
     public void doStopProPlugin() throws Exception {
-        // shutdown the executor
-        if (executor != null && !executor.isTerminated()) {
+        long begin = System.nanoTime();
+        PluginStartup.stopped(getName());
+        // drop the events retained for this instance so they do not hold it past a reload
+        stickyEvents.removeBySource(this);
+        // signal in-flight tasks to wind down
+        stopping.complete(null);
+        // cancel the async tasks of every open scope
+        for (String name : taskScopes.keySet()) {
+            closeTaskScope(name);
+        }
+        // cancel keyed tasks waiting behind the running ones
+        if (keyedExecutor != null) {
+            keyedExecutor.shutdown();
+        }
+        // cancel pending one-shot tasks, leaving those of other plugins on a shared wheel
+        if (timer != null) {
+            timer.stop();
+        }
+        // every executor starts draining at once, under one deadline
+        Map<String, ExecutorService> executors = new LinkedHashMap<>();
+        executors.put("executor", executor);
+        executors.put("queuedExecutor", queuedExecutor);
+        executors.put("scheduledExecutor", scheduledExecutor);
+        if (computeExecutor != executor) {
+            executors.put("computeExecutor", computeExecutor);
+        }
+        executors.values().removeIf(Objects::isNull);
+        for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
             try {
-                // stop the media threads
-                executor.shutdown();
-                // wait a few moments for termination
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
+                entry.getValue().shutdown();
             } catch (Throwable t) {
-                log.debug("Exception stopping executor", t);
+                log.debug("Exception stopping {}", entry.getKey(), t);
             }
         }
-        // shutdown the queued executor
-        if (queuedExecutor != null && !queuedExecutor.isTerminated()) {
-            try {
-                // stop the media threads
-                queuedExecutor.shutdown();
-                // wait a few moments for termination
-                if (!queuedExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    queuedExecutor.shutdownNow();
+        ShutdownReport report = new ShutdownReport(getName(), shutdownTimeoutMs);
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        // the end of the deadline is kept for interrupted tasks to unwind
+        long interruptAt = deadline - TimeUnit.MILLISECONDS.toNanos(Math.min(1000L, shutdownTimeoutMs / 5L));
+        if (!awaitTermination(executors.values(), interruptAt)) {
+            if (executorMetrics != null) {
+                for (ExecutorMetrics metrics : executorMetrics.all()) {
+                    report.interrupted(metrics.getName(), metrics.getRunningTasks());
                 }
-            } catch (Throwable t) {
-                log.debug("Exception stopping queuedExecutor", t);
+            }
+            for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
+                if (!entry.getValue().isTerminated()) {
+                    List<Runnable> dropped = entry.getValue().shutdownNow();
+                    // cancel so anyone waiting on a dropped task, and the keyed executor, move on
+                    for (Runnable task : dropped) {
+                        if (task instanceof Future) {
+                            ((Future<?>) task).cancel(false);
+                        }
+                    }
+                    report.dropped(entry.getKey(), dropped);
+                }
+            }
+            awaitTermination(executors.values(), deadline);
+        }
+        for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
+            if (!entry.getValue().isTerminated()) {
+                report.unterminated(entry.getKey());
+            }
+        }
+        report.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        shutdownReport = report;
+        if (report.isClean()) {
+            log.debug("{}", report);
+        } else {
+            log.warn("{}", report);
+        }
+        if (executorMetrics != null) {
+            executorMetrics.unregister();
+        }
+        // drop shared views from the fabric accounting
+        for (ExecutorService view : executors.values()) {
+            if (view instanceof FabricView) {
+                ExecutorFabric.get().remove((FabricView) view);
             }
         }
-        // shutdown scheduled executor
-        if (scheduledExecutor != null && !scheduledExecutor.isTerminated()) {
+    }
+
+    // waits for the executors to terminate until the deadline, in nanoTime
+    private static boolean awaitTermination(Collection<ExecutorService> executors, long deadline) {
+        for (ExecutorService executor : executors) {
             try {
-                // stop the media threads
-                scheduledExecutor.shutdown();
-                // wait a few moments for termination
-                if (!scheduledExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduledExecutor.shutdownNow();
+                long remaining = deadline - System.nanoTime();
+                if (remaining > 0L ? !executor.awaitTermination(remaining, TimeUnit.NANOSECONDS) : !executor.isTerminated()) {
+                    return false;
                 }
-            } catch (Throwable t) {
-                log.debug("Exception stopping scheduledExecutor", t);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Returns whether the plugin is stopping. Long-running tasks should check this, or use whenStopping, and wind down;
+     * tasks still running near the end of the shutdown deadline are interrupted.
+     *
+     * @return true once stopping
+     */
+    public boolean isStopping() {
+        return stopping.isDone();
+    }
+
+    /**
+     * Returns a future which completes when the plugin begins to stop.
+     *
+     * @return stop signal
+     */
+    public CompletableFuture<Void> whenStopping() {
+        return stopping.copy();
+    }
+
+    /**
+     * Returns the report of the last stop, or null if the plugin has not stopped.
+     *
+     * @return shutdown report
+     */
+    public ShutdownReport getShutdownReport() {
+        return shutdownReport;
     }
 
     /**
@@ -218,7 +499,94 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return true if ready and false otherwise
      */
     public static boolean isReady() {
-        return ready;
+        syncReadyFlag();
+        return readiness.isDone();
+    }
+
+    /**
+     * Returns a future completed when the Pro server instance is ready, or already complete if it is. The future is a
+     * copy, so completing or cancelling it does not change the ready state.
+     *
+     * @return readiness future
+     */
+    public static CompletableFuture<Void> whenReady() {
+        syncReadyFlag();
+        return readiness.copy();
+    }
+
+    // applies a ready state written straight to the deprecated flag
+    @SuppressWarnings("deprecation")
+    private static void syncReadyFlag() {
+        boolean flag = ready;
+        if (flag != readiness.isDone()) {
+            setReady(flag);
+        }
+    }
+
+    /**
+     * Sets the ready state of the Pro server instance. Becoming ready completes the {@link #whenReady()} future and
+     * dispatches a sticky {@link ServerEvent#SERVER_READY} event.
+     *
+     * @param ready
+     */
+    @SuppressWarnings("deprecation")
+    public static void setReady(boolean ready) {
+        CompletableFuture<Void> current;
+        synchronized (stickyEvents) {
+            Red5ProPlugin.ready = ready;
+            current = readiness;
+            if (!ready) {
+                if (current.isDone()) {
+                    readiness = new CompletableFuture<>();
+                    stickyEvents.remove(ServerEvent.SERVER_READY, Red5ProPlugin.class);
+                }
+                return;
+            }
+        }
+        // completed and posted outside the lock, as both may run listener code on this thread
+        if (current.complete(null)) {
+            post(ServerEventMessage.of(ServerEvent.SERVER_READY, Red5ProPlugin.class, Boolean.FALSE, Boolean.TRUE));
+        }
+    }
+
+    /**
+     * Starts this plugin on its executor once the server is ready and the plugins and services it depends on have
+     * started. Plugins without dependencies between them start in parallel. Used by ProPluginator in place of calling
+     * {@link #doStartProPlugin(FileSystemXmlApplicationContext)} directly.
+     *
+     * @param configContext
+     * @return future completed when the plugin has started
+     */
+    public CompletableFuture<Red5ProPlugin> startProPlugin(FileSystemXmlApplicationContext configContext) {
+        syncReadyFlag();
+        return PluginStartup.start(this, configContext, readiness, executor);
+    }
+
+    /**
+     * Returns the names of plugins which must start before this one.
+     *
+     * @return plugin names
+     */
+    public Set<String> getPluginDependencies() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns the names of services which must be registered before this plugin starts.
+     *
+     * @return service names
+     */
+    public Set<String> getServiceDependencies() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns the startup timeline of each plugin, one per line.
+     *
+     * @return report
+     */
+    public static String getStartupReport() {
+        return PluginStartup.getReport();
     }
 
     /**
@@ -228,7 +596,7 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return Future
      */
     public Future<?> submitTask(Runnable task) {
-        return executor.submit(task);
+        return executor.submit(executorMetrics.general.wrap(task));
     }
 
     /**
@@ -246,7 +614,8 @@ public abstract class Red5ProPlugin extends Red5Plugin {
     }
 
     /**
-     * Submit a task for scheduled execution.
+     * Submit a task for scheduled execution. A task with no re-run delay runs once after the initial delay, and
+     * cancelling its future before then removes it from the timer.
      *
      * @param task
      * @param initialDelay initial delay in milliseconds
@@ -256,31 +625,16 @@ public abstract class Red5ProPlugin extends Red5Plugin {
     public Future<?> submitScheduledTask(final Runnable task, final long initialDelay, final long rerunDelay) {
         log.debug("submitScheduledTask: {} delay: {} rerun: {}", task, initialDelay, rerunDelay);
         if (rerunDelay == 0) {
-            Callable<Future<?>> delayedTask = new Callable<Future<?>>() {
-
-                Future<?> future = null;
-
-                @Override
-                public Future<?> call() throws Exception {
-                    try {
-                        Thread.sleep(initialDelay);
-                        // now send original task to be executed with the non-scheduled executor
-                        future = executor.submit(task);
-                    } catch (Exception e) {
-                        log.warn("Exception scheduling task", e);
-                    }
-                    return future;
-                }
-
-            };
-            return executor.submit(delayedTask);
+            // one-shot tasks go on the timer, which holds no thread while waiting
+            return timer.schedule(executorMetrics.general.wrap(task, false), initialDelay, TimeUnit.MILLISECONDS);
         }
         // schedule the task, re-run delay is the period between one completed run and another
-        return scheduledExecutor.scheduleWithFixedDelay(task, initialDelay, rerunDelay, TimeUnit.MILLISECONDS);
+        return scheduledExecutor.scheduleWithFixedDelay(executorMetrics.scheduled.wrapPeriodic(task), initialDelay, rerunDelay,
+                TimeUnit.MILLISECONDS);
     }
 
     public Future<?> submitCallable(Callable<?> task) {
-        return scheduledExecutor.submit(task);
+        return scheduledExecutor.submit(executorMetrics.scheduled.wrap(task));
     }
 
     /**
@@ -289,18 +643,214 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return executor task queue size
      */
     public int getThreadQueueSize() {
+        if (executor instanceof FabricView) {
+            return ((FabricView) executor).getQueueSize();
+        }
         return (executor != null && executor instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
     }
 
+    /**
+     * Returns the size of the queued executor task queue.
+     *
+     * @return queued executor task queue size
+     */
+    public int getQueuedTaskQueueSize() {
+        if (queuedExecutor instanceof FabricView) {
+            return ((FabricView) queuedExecutor).getQueueSize();
+        }
+        return (queuedExecutor != null && queuedExecutor instanceof ThreadPoolExecutor)
+                ? ((ThreadPoolExecutor) queuedExecutor).getQueue().size()
+                : 0;
+    }
+
+    /**
+     * Returns the number of executor threads running tasks.
+     *
+     * @return active thread count, zero when the executor does not track it
+     */
+    public int getActiveThreadCount() {
+        if (executor instanceof FabricView) {
+            return ((FabricView) executor).getActiveCount();
+        }
+        return (executor != null && executor instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor) executor).getActiveCount() : 0;
+    }
+
+    /**
+     * Returns the number of tasks completed by the executor.
+     *
+     * @return completed task count, zero when the executor does not track it
+     */
+    public long getCompletedTaskCount() {
+        if (executor instanceof FabricView) {
+            return ((FabricView) executor).getCompleted();
+        }
+        return (executor != null && executor instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor) executor).getCompletedTaskCount() : 0L;
+    }
+
+    /**
+     * Returns the number of tasks which found a bounded executor saturated, whether they were run by the caller, displaced
+     * the oldest queued task or were rejected.
+     *
+     * @return saturated task count
+     */
+    public long getSaturatedTaskCount() {
+        return saturatedTasks.sum();
+    }
+
+    /**
+     * Runs a CPU-bound task which does not block. In shared mode it runs on the server-wide work-stealing pool, otherwise
+     * on the general executor.
+     *
+     * @param task Runnable task
+     * @return Future
+     */
+    public Future<?> submitComputeTask(Runnable task) {
+        return computeExecutor.submit(executorMetrics.general.wrap(task));
+    }
+
     /**
      * Provides a means to share execution of similar tasks and return the Future. The tasks submitted are placed
-     * in an unbounded queue and executed one-at-a-time.
+     * in a queue and executed one-at-a-time, in order. The queue is unbounded except in bounded mode, where a full queue
+     * rejects the task or, under the drop-oldest policy, cancels the oldest queued task.
      *
      * @param task Runnable task
      * @return Future
      */
     public Future<?> submitQueuedTask(Runnable task) {
-        return queuedExecutor.submit(task);
+        return queuedExecutor.submit(executorMetrics.queued.wrap(task));
+    }
+
+    /**
+     * Runs a task on the general executor, returning a future which completes with its result.
+     *
+     * @param task Runnable task
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> submitAsync(Runnable task) {
+        return submitAsync(task, 0L, null);
+    }
+
+    /**
+     * Runs a task on the general executor, returning a future which completes with its result.
+     *
+     * @param task Callable task
+     * @return CompletableFuture
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task) {
+        return submitAsync(task, 0L, null);
+    }
+
+    /**
+     * Runs a task on the general executor under a deadline, attached to a lifecycle scope.
+     *
+     * @param task Runnable task
+     * @param deadlineMs time allowed in milliseconds, after which the future fails with a TimeoutException and the task is
+     *            interrupted, or 0 for none
+     * @param scope scope which cancels the task when closed, or null
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> submitAsync(Runnable task, long deadlineMs, TaskScope scope) {
+        return scheduleAsync(Executors.callable(task, (Void) null), 0L, deadlineMs, scope);
+    }
+
+    /**
+     * Runs a task on the general executor under a deadline, attached to a lifecycle scope.
+     *
+     * @param task Callable task
+     * @param deadlineMs time allowed in milliseconds, after which the future fails with a TimeoutException and the task is
+     *            interrupted, or 0 for none
+     * @param scope scope which cancels the task when closed, or null
+     * @return CompletableFuture
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task, long deadlineMs, TaskScope scope) {
+        return scheduleAsync(task, 0L, deadlineMs, scope);
+    }
+
+    /**
+     * Runs a task once on the general executor after a delay, under a deadline counted from when it is due. Async
+     * continuations of the returned future default to the general executor.
+     *
+     * @param task Callable task
+     * @param delayMs delay in milliseconds
+     * @param deadlineMs time allowed in milliseconds once due, or 0 for none
+     * @param scope scope which cancels the task when closed, or null
+     * @return CompletableFuture
+     */
+    public <T> CompletableFuture<T> scheduleAsync(Callable<T> task, long delayMs, long deadlineMs, TaskScope scope) {
+        AsyncTask<T> async = new AsyncTask<>(executorMetrics.general.wrap(task, delayMs <= 0L), executor, timer, deadlineMs);
+        if (scope != null) {
+            scope.attach(async);
+        }
+        async.start(delayMs);
+        return async;
+    }
+
+    /**
+     * Returns the lifecycle scope of a name, such as a stream or connection id, opening it if needed.
+     *
+     * @param name scope name
+     * @return scope
+     */
+    public TaskScope getTaskScope(String name) {
+        return taskScopes.computeIfAbsent(name, TaskScope::new);
+    }
+
+    /**
+     * Closes the lifecycle scope of a name, cancelling its async tasks. A later call to getTaskScope opens a new scope.
+     *
+     * @param name scope name
+     * @return number of tasks cancelled
+     */
+    public int closeTaskScope(String name) {
+        TaskScope scope = taskScopes.remove(name);
+        if (scope != null) {
+            int cancelled = scope.close();
+            log.debug("Closed task scope {}, {} tasks cancelled", name, cancelled);
+            return cancelled;
+        }
+        return 0;
+    }
+
+    /**
+     * Runs a task after every task submitted earlier with the same key, such as a stream name, on the general executor.
+     * Tasks of different keys run in parallel, so ordered per-stream work does not share one thread across streams.
+     *
+     * @param key ordering key
+     * @param task Runnable task
+     * @return Future
+     */
+    public Future<?> submitKeyed(Object key, Runnable task) {
+        return keyedExecutor.submit(key, executorMetrics.keyed.wrap(task));
+    }
+
+    /**
+     * Runs a task after every task submitted earlier with the same key, such as a stream name, on the general executor.
+     *
+     * @param key ordering key
+     * @param task Callable task
+     * @return Future
+     */
+    public <T> Future<T> submitKeyed(Object key, Callable<T> task) {
+        return keyedExecutor.submit(key, executorMetrics.keyed.wrap(task));
+    }
+
+    /**
+     * Returns the number of tasks waiting behind the running one for a key.
+     *
+     * @param key ordering key
+     * @return backlog
+     */
+    public int getKeyedBacklog(Object key) {
+        return keyedExecutor.getBacklog(key);
+    }
+
+    /**
+     * Returns the task metrics of this plugin's executors, also published as an MBean.
+     *
+     * @return executor metrics
+     */
+    public PluginExecutorMetrics getExecutorMetrics() {
+        return executorMetrics;
     }
 
     /**
@@ -415,6 +965,72 @@ public abstract class Red5ProPlugin extends Red5Plugin {
         return null;
     }
 
+    public static ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets the thread kind for the general executor of plugins created afterward.
+     *
+     * @param executionMode
+     */
+    public static void setExecutionMode(ExecutionMode executionMode) {
+        Red5ProPlugin.executionMode = executionMode;
+    }
+
+    public static int getBoundedCoreSize() {
+        return boundedCoreSize;
+    }
+
+    public static void setBoundedCoreSize(int boundedCoreSize) {
+        Red5ProPlugin.boundedCoreSize = boundedCoreSize;
+    }
+
+    public static int getBoundedMaxSize() {
+        return boundedMaxSize;
+    }
+
+    public static void setBoundedMaxSize(int boundedMaxSize) {
+        Red5ProPlugin.boundedMaxSize = boundedMaxSize;
+    }
+
+    public static int getBoundedQueueCapacity() {
+        return boundedQueueCapacity;
+    }
+
+    public static void setBoundedQueueCapacity(int boundedQueueCapacity) {
+        Red5ProPlugin.boundedQueueCapacity = boundedQueueCapacity;
+    }
+
+    public static SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    public static void setSaturationPolicy(SaturationPolicy saturationPolicy) {
+        Red5ProPlugin.saturationPolicy = saturationPolicy;
+    }
+
+    public static int getSharedQuota() {
+        return sharedQuota;
+    }
+
+    /**
+     * Sets how many tasks of a plugin's general executor may run at once in shared mode, for plugins created afterward.
+     *
+     * @param sharedQuota
+     */
+    public static void setSharedQuota(int sharedQuota) {
+        Red5ProPlugin.sharedQuota = sharedQuota;
+    }
+
+    public static long getShutdownTimeoutMs() {
+        return shutdownTimeoutMs;
+    }
+
+    public static void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+        Red5ProPlugin.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
     public static int getScheduledPoolSize() {
         return scheduledPoolSize;
     }
@@ -505,17 +1121,52 @@ public abstract class Red5ProPlugin extends Red5Plugin {
 
     /**
      * Dispatch a server event to interested listeners. The listeners list is static for shared access between plugin
-     * implementations, but dispatching is per plugin instance.
+     * implementations. Events are delivered on the shared dispatcher lanes, in order for any one listener, and the last
+     * event of each type from each source is retained for replay to listeners registering later.
      *
      * @param evt
      */
     public void dispatchServerEvent(final PropertyChangeEvent evt) {
         log.info("Dispatch server event: {}", evt);
-        // determine the event type for filtering to those interested in it
-        final ServerEvent eventType = ServerEvent.valueOf(evt.getPropertyName());
-        // fire-off a worker to do the event propagation filtered by event type
-        queuedExecutor.submit(() -> eventListeners.stream().filter(listener -> listener.hasInterest(eventType))
-                .forEach(listener -> listener.propertyChange(evt)));
+        dispatchServerEvent(ServerEventMessage.of(evt));
+    }
+
+    /**
+     * Dispatch a typed server event to interested listeners.
+     *
+     * @param type
+     * @param source
+     * @param newValue
+     */
+    public void dispatchServerEvent(ServerEvent type, Object source, Object newValue) {
+        dispatchServerEvent(ServerEventMessage.obtain(type, source, null, newValue));
+    }
+
+    /**
+     * Dispatch a typed server event to interested listeners. Events from {@link ServerEventMessage#obtain} are returned to
+     * the pool after delivery and must not be used by the caller afterward.
+     *
+     * @param evt
+     */
+    public void dispatchServerEvent(ServerEventMessage evt) {
+        log.debug("Dispatch server event: {}", evt);
+        post(evt);
+    }
+
+    // retains and dispatches an event
+    private static void post(ServerEventMessage evt) {
+        ServerEventListener[] listeners;
+        if (stickyEvents.affects(evt.getType())) {
+            // retained and snapshotted together, so a listener registering meanwhile gets either the replay or this dispatch
+            synchronized (stickyEvents) {
+                stickyEvents.retain(evt);
+                listeners = eventListeners.getListeners(evt.getType());
+            }
+        } else {
+            listeners = eventListeners.getListeners(evt.getType());
+        }
+        // outside the lock, as a caller-runs overflow policy runs listeners on this thread
+        eventDispatcher.dispatch(evt, listeners);
     }
 
     /**
@@ -525,20 +1176,95 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      */
     public static final void dispatchServerEventInline(final PropertyChangeEvent evt) {
         try {
-            eventListeners.forEach(listener -> listener.propertyChange(evt));
+            for (ServerEventListener listener : eventListeners.getAll()) {
+                listener.propertyChange(evt);
+            }
         } catch (Exception e) {
             log.warn("Exception dispatching: {}", evt, e);
         }
     }
 
     /**
-     * Register a server event listener.
+     * Force a typed server event dispatch to the listeners interested in it. This is a synchronous call and should be
+     * used with caution.
+     *
+     * @param evt
+     */
+    public static final void dispatchServerEventInline(ServerEventMessage evt) {
+        // a pooled event is cleared once returned to its pool, so the type is kept for logging
+        ServerEvent type = evt.getType();
+        try {
+            eventDispatcher.dispatchInline(evt, eventListeners.getListeners(type));
+        } catch (Exception e) {
+            log.warn("Exception dispatching: {}", type, e);
+        }
+    }
+
+    /**
+     * Register a server event listener. Listeners are registered by identity and indexed by the event types they hold at
+     * the time of registration.
      *
      * @param serverEventListener
      * @return true if added and false otherwise
      */
     public static boolean addServerEventListener(ServerEventListener serverEventListener) {
-        return eventListeners.add(serverEventListener);
+        return addServerEventListener(serverEventListener, false);
+    }
+
+    /**
+     * Register a server event listener, optionally replaying the retained last event of each of its types from each
+     * source. Replayed events are queued on the listener's lane while registration still holds off dispatch, so they are
+     * ahead of any event dispatched after registration; a replayed event finding the lane full is dropped.
+     *
+     * @param serverEventListener
+     * @param replay whether to replay retained events
+     * @return true if added and false otherwise
+     */
+    public static boolean addServerEventListener(ServerEventListener serverEventListener, boolean replay) {
+        synchronized (stickyEvents) {
+            if (!eventListeners.add(serverEventListener)) {
+                return false;
+            }
+            if (replay) {
+                // queued under the lock, as a post after registration dispatches only once it has taken the lock; offer never
+                // runs the listener here
+                for (ServerEventMessage evt : stickyEvents.get(serverEventListener.getEventTypes())) {
+                    eventDispatcher.offer(evt, serverEventListener);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the event types retained for late listeners. By default these are the events marking a state entered: plugin
+     * start and pause, post processor start and server ready.
+     *
+     * @param types
+     */
+    public static void setStickyServerEventTypes(Set<ServerEvent> types) {
+        stickyEvents.setStickyTypes(types);
+    }
+
+    /**
+     * Returns the retained last event of a type from a source.
+     *
+     * @param type
+     * @param source
+     * @return event or null if none is retained
+     */
+    public static ServerEventMessage getStickyServerEvent(ServerEvent type, Object source) {
+        return stickyEvents.get(type, source);
+    }
+
+    /**
+     * Drops the retained events from a source.
+     *
+     * @param source
+     * @return true if any were retained and false otherwise
+     */
+    public static boolean removeStickyServerEvents(Object source) {
+        return stickyEvents.removeBySource(source);
     }
 
     /**
@@ -548,6 +1274,7 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return true if removed and false otherwise
      */
     public static boolean removeServerEventListener(ServerEventListener serverEventListener) {
+        eventDispatcher.forget(serverEventListener);
         return eventListeners.remove(serverEventListener);
     }
 
@@ -558,7 +1285,11 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return true if removed and false otherwise
      */
     public static boolean removeServerEventListenerByOwner(Object owner) {
-        return eventListeners.removeIf(listener -> (listener.getOwner().equals(owner)));
+        List<ServerEventListener> removed = eventListeners.removeByOwner(owner);
+        for (ServerEventListener listener : removed) {
+            eventDispatcher.forget(listener);
+        }
+        return !removed.isEmpty();
     }
 
     /**
@@ -569,7 +1300,7 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return true if registration is successful and false otherwise
      */
     public static boolean registerProService(String serviceName, IRed5ProService instance) {
-        return false;
+        return PluginStartup.registerService(serviceName, instance);
     }
 
     /**
@@ -579,7 +1310,7 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return true if removed and false otherwise
      */
     public static boolean unregisterProService(String serviceName) {
-        return false;
+        return PluginStartup.unregisterService(serviceName);
     }
 
     /**
@@ -589,7 +1320,16 @@ public abstract class Red5ProPlugin extends Red5Plugin {
      * @return IRed5ProService or null if not found
      */
     public static IRed5ProService getProService(String serviceName) {
-        return null;
+        return PluginStartup.getService(serviceName);
+    }
+
+    /**
+     * Returns the server event dispatcher, for its lane and per-listener metrics.
+     *
+     * @return dispatcher
+     */
+    public static ServerEventDispatcher getServerEventDispatcher() {
+        return eventDispatcher;
     }
 
     public static String getDefaultProfile() {
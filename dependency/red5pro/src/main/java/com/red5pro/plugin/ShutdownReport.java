@@ -0,0 +1,123 @@
+package com.red5pro.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a plugin stop: how long draining took, whether the executors terminated within the deadline, and the
+ * tasks which had to be interrupted or were dropped from the queues.
+ */
+public final class ShutdownReport {
+
+    private final String pluginName;
+
+    private final long deadlineMs;
+
+    private long elapsedMs;
+
+    private boolean terminated;
+
+    private final List<String> interrupted = new ArrayList<>(), dropped = new ArrayList<>(), unterminated = new ArrayList<>();
+
+    ShutdownReport(String pluginName, long deadlineMs) {
+        this.pluginName = pluginName;
+        this.deadlineMs = deadlineMs;
+    }
+
+    void interrupted(String executorName, List<String> tasks) {
+        for (String task : tasks) {
+            interrupted.add(executorName + ": " + task);
+        }
+    }
+
+    void dropped(String executorName, List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            dropped.add(executorName + ": " + task);
+        }
+    }
+
+    void unterminated(String executorName) {
+        unterminated.add(executorName);
+    }
+
+    void finish(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+        this.terminated = unterminated.isEmpty();
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * Returns whether every executor terminated within the deadline.
+     *
+     * @return true if terminated
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * Returns whether the tasks all finished without being interrupted or dropped.
+     *
+     * @return true if clean
+     */
+    public boolean isClean() {
+        return terminated && interrupted.isEmpty() && dropped.isEmpty();
+    }
+
+    /**
+     * Returns the tasks still running at the drain deadline, which were interrupted.
+     *
+     * @return task descriptions prefixed with their executor
+     */
+    public List<String> getInterruptedTasks() {
+        return Collections.unmodifiableList(interrupted);
+    }
+
+    /**
+     * Returns the queued tasks removed without running.
+     *
+     * @return task descriptions prefixed with their executor
+     */
+    public List<String> getDroppedTasks() {
+        return Collections.unmodifiableList(dropped);
+    }
+
+    /**
+     * Returns the executors which had threads still running at the deadline.
+     *
+     * @return executor names
+     */
+    public List<String> getUnterminatedExecutors() {
+        return Collections.unmodifiableList(unterminated);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ShutdownReport [plugin=").append(pluginName).append(", elapsed=").append(elapsedMs).append("ms, deadline=")
+                .append(deadlineMs).append("ms, terminated=").append(terminated).append(']');
+        for (String task : interrupted) {
+            sb.append("\n  interrupted ").append(task);
+        }
+        for (String task : dropped) {
+            sb.append("\n  dropped ").append(task);
+        }
+        for (String name : unterminated) {
+            sb.append("\n  unterminated ").append(name);
+        }
+        return sb.toString();
+    }
+
+}
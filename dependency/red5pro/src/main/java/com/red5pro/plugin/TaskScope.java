@@ -0,0 +1,75 @@
+package com.red5pro.plugin;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A lifecycle, such as a stream or a connection, which asynchronous tasks attach to so they are cancelled together when
+ * it ends. Tasks leave the scope as they complete; a task attached after the scope is closed is cancelled at once.
+ */
+public class TaskScope {
+
+    private final String name;
+
+    private final Set<CompletableFuture<?>> tasks = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    public TaskScope(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Attaches a task to the scope.
+     *
+     * @param task
+     */
+    public void attach(CompletableFuture<?> task) {
+        if (closed) {
+            task.cancel(true);
+            return;
+        }
+        tasks.add(task);
+        task.whenComplete((result, error) -> tasks.remove(task));
+        // closed meanwhile, the close may have missed it
+        if (closed) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Closes the scope, cancelling the tasks not yet complete.
+     *
+     * @return number of tasks cancelled
+     */
+    public int close() {
+        closed = true;
+        int cancelled = 0;
+        for (CompletableFuture<?> task : tasks) {
+            if (task.cancel(true)) {
+                cancelled++;
+            }
+        }
+        tasks.clear();
+        return cancelled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskScope [name=" + name + ", closed=" + closed + ", tasks=" + tasks.size() + "]";
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.red5pro.plugin;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A plugin's view of a {@link HashedWheelTimer}, which in shared mode is the {@link ExecutorFabric}'s wheel. Expired tasks
+ * run on the view's executor unless scheduled with another. Stopping the view cancels only its own timeouts; the wheel
+ * itself is stopped only by a view which owns it.
+ */
+public class TimerView {
+
+    private final HashedWheelTimer wheel;
+
+    private final Executor executor;
+
+    private final boolean owner;
+
+    // timeouts of this view not yet run or dropped
+    private final Set<Tracked> timeouts = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopped;
+
+    /**
+     * Creates a view.
+     *
+     * @param wheel timer the timeouts are scheduled on
+     * @param executor executor expired tasks are run on
+     * @param owner whether stopping the view stops the wheel
+     */
+    public TimerView(HashedWheelTimer wheel, Executor executor, boolean owner) {
+        this.wheel = wheel;
+        this.executor = executor;
+        this.owner = owner;
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @return future for the task, cancelling it removes the timeout
+     */
+    public HashedWheelTimer.Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return schedule(task, delay, unit, executor);
+    }
+
+    /**
+     * Schedules a task to run once after a delay on the given executor; Runnable::run runs it on the timer thread, which
+     * suits only short tasks.
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @param executor executor the task is run on
+     * @return future for the task, cancelling it removes the timeout
+     */
+    public HashedWheelTimer.Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        Tracked tracked = new Tracked(task);
+        timeouts.add(tracked);
+        HashedWheelTimer.Timeout timeout = tracked.timeout = wheel.schedule(tracked, delay, unit, executor);
+        // stopped meanwhile, the stop may have missed it
+        if (stopped) {
+            timeout.cancel(false);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the view, cancelling its timeouts not yet expired; tasks scheduled afterwards are cancelled at once.
+     */
+    public void stop() {
+        stopped = true;
+        for (Tracked tracked : timeouts) {
+            HashedWheelTimer.Timeout timeout = tracked.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+        if (owner) {
+            wheel.stop();
+        }
+    }
+
+    /**
+     * Returns the number of this view's timeouts waiting to expire.
+     *
+     * @return count
+     */
+    public int getPending() {
+        return timeouts.size();
+    }
+
+    // leaves the view's set when run or dropped, passing a drop on to the task
+    private final class Tracked implements HashedWheelTimer.Task {
+
+        private final Runnable task;
+
+        volatile HashedWheelTimer.Timeout timeout;
+
+        Tracked(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            timeouts.remove(this);
+            task.run();
+        }
+
+        @Override
+        public void dropped() {
+            timeouts.remove(this);
+            if (task instanceof HashedWheelTimer.Task) {
+                ((HashedWheelTimer.Task) task).dropped();
+            }
+        }
+
+    }
+
+}
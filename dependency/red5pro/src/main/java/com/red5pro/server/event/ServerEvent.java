@@ -18,7 +18,8 @@ public enum ServerEvent {
     PLUGIN_PAUSE, // plugin paused (used with licensing)
     PLUGIN_RESUME, // plugin resumed (used with licensing)
     POST_PROCESSOR_START, // post processor has started
-    POST_PROCESSOR_STOP; // post processor has stopped
+    POST_PROCESSOR_STOP, // post processor has stopped
+    SERVER_READY; // server is ready, dispatched once when the ready state is set
 
     /**
      * Convenience method to build a server event without a "previous" value.
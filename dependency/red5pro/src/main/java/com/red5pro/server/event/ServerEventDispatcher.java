@@ -0,0 +1,312 @@
+package com.red5pro.server.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.red5pro.server.stream.Red5ProThreadFactory;
+
+/**
+ * Delivers server events on a fixed set of lanes, each a single thread with a bounded queue. A listener's lane is chosen
+ * from its owner, so events reach each listener (and every listener of an owner) in dispatch order, while listeners of
+ * different owners run in parallel and a slow handler only holds up its own lane. Handler time is recorded per listener
+ * and handlers over the slow threshold are logged.
+ */
+public class ServerEventDispatcher {
+
+    private static Logger log = LoggerFactory.getLogger(ServerEventDispatcher.class);
+
+    /**
+     * What to do with an event when its lane's queue is full.
+     */
+    public enum OverflowPolicy {
+        /** discard the event being dispatched */
+        DROP_NEWEST,
+        /** discard the oldest queued event in the lane and queue this one */
+        DROP_OLDEST,
+        /** deliver on the dispatching thread, which may reorder it ahead of queued events */
+        CALLER_RUNS;
+    }
+
+    private final ThreadPoolExecutor[] lanes;
+
+    private volatile OverflowPolicy overflowPolicy;
+
+    private volatile long slowHandlerNanos;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final ConcurrentHashMap<ServerEventListener, ListenerMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param laneCount number of lanes
+     * @param laneCapacity queued events allowed per lane
+     * @param overflowPolicy policy when a lane is full
+     * @param slowHandlerMs handler time in milliseconds above which a handler is reported as slow
+     */
+    public ServerEventDispatcher(int laneCount, int laneCapacity, OverflowPolicy overflowPolicy, long slowHandlerMs) {
+        this.overflowPolicy = overflowPolicy;
+        this.slowHandlerNanos = TimeUnit.MILLISECONDS.toNanos(slowHandlerMs);
+        lanes = new ThreadPoolExecutor[laneCount];
+        RejectedExecutionHandler overflow = (task, lane) -> {
+            if (lane.isShutdown()) {
+                ((Delivery) task).discard();
+                return;
+            }
+            switch (this.overflowPolicy) {
+                case CALLER_RUNS:
+                    task.run();
+                    break;
+                case DROP_OLDEST:
+                    Runnable oldest = lane.getQueue().poll();
+                    if (oldest != null) {
+                        dropped.increment();
+                        ((Delivery) oldest).discard();
+                    }
+                    lane.execute(task);
+                    break;
+                default:
+                    dropped.increment();
+                    ((Delivery) task).discard();
+                    log.warn("Server event lane full, dropping event");
+                    break;
+            }
+        };
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(laneCapacity),
+                    new Red5ProThreadFactory("ServerEventLane-%s", String.valueOf(i)), overflow);
+            // started up front so events offered straight to the queue are picked up
+            lanes[i].prestartCoreThread();
+        }
+    }
+
+    /**
+     * Queues an event for each of the listeners on their lanes. A pooled event returns to its pool once every listener
+     * has handled it.
+     *
+     * @param evt
+     * @param listeners
+     */
+    public void dispatch(ServerEventMessage evt, ServerEventListener[] listeners) {
+        evt.retain(listeners.length + 1);
+        for (ServerEventListener listener : listeners) {
+            lane(listener.getOwner()).execute(new Delivery(listener, evt));
+        }
+        // the extra hold covers a pooled event sent to no listeners or delivered before the loop ends
+        evt.release();
+    }
+
+    /**
+     * Queues an event for one listener without blocking or running it on the calling thread, whatever the overflow policy,
+     * so it may be called while holding a lock. The event is dropped if the listener's lane is full.
+     *
+     * @param evt
+     * @param listener
+     * @return true if queued and false if dropped
+     */
+    public boolean offer(ServerEventMessage evt, ServerEventListener listener) {
+        ThreadPoolExecutor lane = lane(listener.getOwner());
+        if (lane.isShutdown()) {
+            return false;
+        }
+        evt.retain(1);
+        if (lane.getQueue().offer(new Delivery(listener, evt))) {
+            return true;
+        }
+        dropped.increment();
+        evt.release();
+        log.warn("Server event lane full, dropping event");
+        return false;
+    }
+
+    /**
+     * Delivers an event to the listeners on the calling thread, in order; a listener's exception ends the delivery and is
+     * thrown to the caller. A pooled event returns to its pool afterwards either way.
+     *
+     * @param evt
+     * @param listeners
+     */
+    public void dispatchInline(ServerEventMessage evt, ServerEventListener[] listeners) {
+        evt.retain(1);
+        try {
+            for (ServerEventListener listener : listeners) {
+                listener.onServerEvent(evt);
+            }
+        } finally {
+            evt.release();
+        }
+    }
+
+    private ThreadPoolExecutor lane(Object owner) {
+        int h = owner != null ? owner.hashCode() : 0;
+        return lanes[((h ^ (h >>> 16)) & 0x7fffffff) % lanes.length];
+    }
+
+    private void deliver(ServerEventListener listener, ServerEventMessage evt) {
+        ServerEvent type = evt.getType();
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            listener.onServerEvent(evt);
+        } catch (Throwable t) {
+            failed = true;
+            log.warn("Exception in server event listener of {} for {}", listener.getOwner(), type, t);
+        }
+        long elapsed = System.nanoTime() - start;
+        boolean slow = elapsed > slowHandlerNanos;
+        metrics.computeIfAbsent(listener, k -> new ListenerMetrics()).record(elapsed, slow, failed);
+        if (slow) {
+            log.warn("Slow server event listener of {} took {}ms for {}", listener.getOwner(), TimeUnit.NANOSECONDS.toMillis(elapsed), type);
+        }
+    }
+
+    // one event for one listener, releasing its hold on the event once run or discarded
+    private final class Delivery implements Runnable {
+
+        final ServerEventListener listener;
+
+        final ServerEventMessage evt;
+
+        Delivery(ServerEventListener listener, ServerEventMessage evt) {
+            this.listener = listener;
+            this.evt = evt;
+        }
+
+        @Override
+        public void run() {
+            try {
+                deliver(listener, evt);
+            } finally {
+                evt.release();
+            }
+        }
+
+        void discard() {
+            evt.release();
+        }
+
+    }
+
+    /**
+     * Drops the metrics for a listener that is no longer registered.
+     *
+     * @param listener
+     */
+    public void forget(ServerEventListener listener) {
+        metrics.remove(listener);
+    }
+
+    /**
+     * Returns the handler metrics keyed by listener owner and listener.
+     *
+     * @return metrics
+     */
+    public Map<String, ListenerMetrics> getListenerMetrics() {
+        Map<String, ListenerMetrics> result = new HashMap<>();
+        metrics.forEach((listener, value) -> result.put(listener.getOwner() + "/" + listener, value));
+        return result;
+    }
+
+    /**
+     * Returns the number of queued events on each lane.
+     *
+     * @return queue depths
+     */
+    public int[] getLaneDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].getQueue().size();
+        }
+        return depths;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setSlowHandlerMs(long slowHandlerMs) {
+        this.slowHandlerNanos = TimeUnit.MILLISECONDS.toNanos(slowHandlerMs);
+    }
+
+    /**
+     * Stops the lanes; queued events are discarded.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            for (Runnable queued : lane.shutdownNow()) {
+                ((Delivery) queued).discard();
+            }
+        }
+    }
+
+    /**
+     * Handler timing for one listener.
+     */
+    public static final class ListenerMetrics {
+
+        private final LongAdder invocations = new LongAdder(), totalNanos = new LongAdder(), slow = new LongAdder(),
+                failures = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean wasSlow, boolean failed) {
+            invocations.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if (wasSlow) {
+                slow.increment();
+            }
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        public long getAverageNanos() {
+            long count = invocations.sum();
+            return count > 0 ? totalNanos.sum() / count : 0L;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getSlow() {
+            return slow.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "ListenerMetrics [invocations=" + getInvocations() + ", averageNanos=" + getAverageNanos() + ", maxNanos=" + getMaxNanos()
+                    + ", slow=" + getSlow() + ", failures=" + getFailures() + "]";
+        }
+
+    }
+
+}
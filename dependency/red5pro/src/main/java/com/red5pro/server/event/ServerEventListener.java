@@ -38,6 +38,16 @@ public class ServerEventListener implements PropertyChangeListener, Comparable<S
         return eventTypes.contains(eventType);
     }
 
+    /**
+     * Handles a typed server event. By default the event is passed on to {@link #propertyChange(PropertyChangeEvent)}, so
+     * existing listeners work unchanged; override this to receive events without the conversion.
+     *
+     * @param event
+     */
+    public void onServerEvent(ServerEventMessage event) {
+        propertyChange(event.toPropertyChangeEvent());
+    }
+
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         // implementation is left up to the implementer
@@ -51,6 +61,10 @@ public class ServerEventListener implements PropertyChangeListener, Comparable<S
         return eventTypes;
     }
 
+    /**
+     * Orders listeners by owner and event types. This ordering is not consistent with equals and is not used for
+     * registration; see {@link ServerEventRegistry}.
+     */
     @Override
     public int compareTo(ServerEventListener that) {
         int result = 0;
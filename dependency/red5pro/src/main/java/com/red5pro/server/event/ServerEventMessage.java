@@ -0,0 +1,151 @@
+package com.red5pro.server.event;
+
+import java.beans.PropertyChangeEvent;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A server event carrying its type, source and values directly, so dispatch needs no property name lookup. Frequent
+ * events may be taken from a small pool with {@link #obtain(ServerEvent, Object, Object, Object)}; a pooled event is
+ * returned once every listener it was dispatched to has handled it, so listeners must not keep a reference to it beyond
+ * {@link ServerEventListener#onServerEvent(ServerEventMessage)}.
+ */
+public final class ServerEventMessage {
+
+    private static final ArrayBlockingQueue<ServerEventMessage> pool = new ArrayBlockingQueue<>(256);
+
+    private ServerEvent type;
+
+    private Object source;
+
+    private Object previousValue;
+
+    private Object newValue;
+
+    // original event when built from a PropertyChangeEvent
+    private PropertyChangeEvent legacy;
+
+    private final boolean pooled;
+
+    // deliveries outstanding for a pooled event
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private ServerEventMessage(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param type
+     * @param source
+     * @param previousValue
+     * @param newValue
+     * @return event
+     */
+    public static ServerEventMessage of(ServerEvent type, Object source, Object previousValue, Object newValue) {
+        return new ServerEventMessage(false).set(type, source, previousValue, newValue);
+    }
+
+    /**
+     * Creates an event from one built by {@link ServerEvent#build(ServerEvent, Object, Object)}. Listeners using
+     * {@link ServerEventListener#propertyChange(PropertyChangeEvent)} receive the original instance.
+     *
+     * @param evt
+     * @return event
+     */
+    public static ServerEventMessage of(PropertyChangeEvent evt) {
+        ServerEventMessage event = of(ServerEvent.valueOf(evt.getPropertyName()), evt.getSource(), evt.getOldValue(), evt.getNewValue());
+        event.legacy = evt;
+        return event;
+    }
+
+    /**
+     * Takes an event from the pool, or creates one if the pool is empty.
+     *
+     * @param type
+     * @param source
+     * @param previousValue
+     * @param newValue
+     * @return event
+     */
+    public static ServerEventMessage obtain(ServerEvent type, Object source, Object previousValue, Object newValue) {
+        ServerEventMessage event = pool.poll();
+        if (event == null) {
+            event = new ServerEventMessage(true);
+        }
+        return event.set(type, source, previousValue, newValue);
+    }
+
+    private ServerEventMessage set(ServerEvent type, Object source, Object previousValue, Object newValue) {
+        this.type = type;
+        this.source = source;
+        this.previousValue = previousValue;
+        this.newValue = newValue;
+        return this;
+    }
+
+    /**
+     * Notes the number of deliveries about to be made of this event.
+     *
+     * @param deliveries
+     */
+    void retain(int deliveries) {
+        if (pooled) {
+            pending.addAndGet(deliveries);
+        }
+    }
+
+    /**
+     * Notes one delivery as complete, returning a pooled event to the pool after the last one.
+     */
+    void release() {
+        if (pooled && pending.decrementAndGet() == 0) {
+            set(null, null, null, null);
+            pool.offer(this);
+        }
+    }
+
+    /**
+     * Returns an event safe to keep after dispatch: this event, or a copy if it is pooled.
+     *
+     * @return event
+     */
+    public ServerEventMessage detach() {
+        if (!pooled) {
+            return this;
+        }
+        return of(type, source, previousValue, newValue);
+    }
+
+    /**
+     * Returns this event as a PropertyChangeEvent for listeners which handle those.
+     *
+     * @return PropertyChangeEvent
+     */
+    public PropertyChangeEvent toPropertyChangeEvent() {
+        return legacy != null ? legacy : new PropertyChangeEvent(source, type.name(), previousValue, newValue);
+    }
+
+    public ServerEvent getType() {
+        return type;
+    }
+
+    public Object getSource() {
+        return source;
+    }
+
+    public Object getPreviousValue() {
+        return previousValue;
+    }
+
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerEventMessage [type=" + type + ", source=" + source + ", previousValue=" + previousValue + ", newValue=" + newValue + "]";
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.red5pro.server.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of server event listeners indexed by event type. Each type maps to an array of the listeners interested in it,
+ * so dispatch touches only those listeners and never consults {@link ServerEventListener#hasInterest(ServerEvent)}.
+ * Listeners are registered by identity, with a copy of their event types taken at registration; removal unindexes that
+ * copy, so a listener whose set changes afterwards leaves no stale entries. Writers copy and republish the index under a
+ * lock; readers take the current arrays without locking.
+ *
+ * @see ServerEventListener
+ */
+public class ServerEventRegistry {
+
+    private static final ServerEventListener[] EMPTY = new ServerEventListener[0];
+
+    // immutable once published, replaced wholesale on every change
+    private volatile EnumMap<ServerEvent, ServerEventListener[]> byType = new EnumMap<>(ServerEvent.class);
+
+    private volatile ServerEventListener[] all = EMPTY;
+
+    // listeners per owner, for removal without a scan; guarded by this
+    private final Map<Object, List<ServerEventListener>> byOwner = new HashMap<>();
+
+    // event types each listener was indexed under; guarded by this
+    private final Map<ServerEventListener, EnumSet<ServerEvent>> registered = new IdentityHashMap<>();
+
+    /**
+     * Registers a listener for its event types.
+     *
+     * @param listener
+     * @return true if added and false if this exact listener is already registered
+     */
+    public synchronized boolean add(ServerEventListener listener) {
+        if (registered.containsKey(listener)) {
+            return false;
+        }
+        EnumSet<ServerEvent> types = EnumSet.copyOf(listener.getEventTypes());
+        EnumMap<ServerEvent, ServerEventListener[]> updated = new EnumMap<>(byType);
+        for (ServerEvent type : types) {
+            ServerEventListener[] current = updated.getOrDefault(type, EMPTY);
+            ServerEventListener[] listeners = Arrays.copyOf(current, current.length + 1);
+            listeners[current.length] = listener;
+            updated.put(type, listeners);
+        }
+        ServerEventListener[] allUpdated = Arrays.copyOf(all, all.length + 1);
+        allUpdated[all.length] = listener;
+        byOwner.computeIfAbsent(listener.getOwner(), k -> new ArrayList<>(2)).add(listener);
+        registered.put(listener, types);
+        byType = updated;
+        all = allUpdated;
+        return true;
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener
+     * @return true if removed and false if it was not registered
+     */
+    public synchronized boolean remove(ServerEventListener listener) {
+        EnumSet<ServerEvent> types = registered.remove(listener);
+        if (types == null) {
+            return false;
+        }
+        List<ServerEventListener> owned = byOwner.get(listener.getOwner());
+        if (owned != null) {
+            owned.removeIf(candidate -> candidate == listener);
+            if (owned.isEmpty()) {
+                byOwner.remove(listener.getOwner());
+            }
+        }
+        EnumMap<ServerEvent, ServerEventListener[]> updated = new EnumMap<>(byType);
+        unindex(updated, listener, types);
+        byType = updated;
+        all = without(all, listener);
+        return true;
+    }
+
+    /**
+     * Removes all listeners belonging to an owner.
+     *
+     * @param owner
+     * @return listeners removed, empty if there were none
+     */
+    public synchronized List<ServerEventListener> removeByOwner(Object owner) {
+        List<ServerEventListener> owned = byOwner.remove(owner);
+        if (owned == null || owned.isEmpty()) {
+            return Collections.emptyList();
+        }
+        EnumMap<ServerEvent, ServerEventListener[]> updated = new EnumMap<>(byType);
+        ServerEventListener[] allUpdated = all;
+        for (ServerEventListener listener : owned) {
+            unindex(updated, listener, registered.remove(listener));
+            allUpdated = without(allUpdated, listener);
+        }
+        byType = updated;
+        all = allUpdated;
+        return owned;
+    }
+
+    private static void unindex(EnumMap<ServerEvent, ServerEventListener[]> index, ServerEventListener listener,
+            EnumSet<ServerEvent> types) {
+        for (ServerEvent type : types) {
+            ServerEventListener[] current = index.get(type);
+            if (current != null) {
+                ServerEventListener[] listeners = without(current, listener);
+                if (listeners.length == 0) {
+                    index.remove(type);
+                } else {
+                    index.put(type, listeners);
+                }
+            }
+        }
+    }
+
+    private static int indexOf(ServerEventListener[] listeners, ServerEventListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ServerEventListener[] without(ServerEventListener[] listeners, ServerEventListener listener) {
+        int i = indexOf(listeners, listener);
+        if (i < 0) {
+            return listeners;
+        }
+        ServerEventListener[] updated = new ServerEventListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, updated, 0, i);
+        System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+        return updated;
+    }
+
+    /**
+     * Returns the listeners interested in an event type. The array must not be modified.
+     *
+     * @param type
+     * @return listeners, empty if there are none
+     */
+    public ServerEventListener[] getListeners(ServerEvent type) {
+        ServerEventListener[] listeners = byType.get(type);
+        return listeners != null ? listeners : EMPTY;
+    }
+
+    /**
+     * Returns all registered listeners. The array must not be modified.
+     *
+     * @return listeners
+     */
+    public ServerEventListener[] getAll() {
+        return all;
+    }
+
+    public int size() {
+        return all.length;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.red5pro.server.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Retains the last server event per type and source so listeners registering late can be brought up to date. Only the
+ * sticky types are retained, by default those which mark a state being entered; events of other types are neither
+ * copied nor kept. An event also drops the retained opposite from the same source, so a stopped plugin is not replayed as
+ * started.
+ */
+public class StickyServerEvents {
+
+    private static final EnumMap<ServerEvent, ServerEvent> opposites = new EnumMap<>(ServerEvent.class);
+
+    static {
+        pair(ServerEvent.PLUGIN_START, ServerEvent.PLUGIN_STOP);
+        pair(ServerEvent.PLUGIN_PAUSE, ServerEvent.PLUGIN_RESUME);
+        pair(ServerEvent.POST_PROCESSOR_START, ServerEvent.POST_PROCESSOR_STOP);
+    }
+
+    private static void pair(ServerEvent a, ServerEvent b) {
+        opposites.put(a, b);
+        opposites.put(b, a);
+    }
+
+    // replaced rather than changed, so it can be read without the lock
+    private volatile Set<ServerEvent> stickyTypes = EnumSet.of(ServerEvent.PLUGIN_START, ServerEvent.PLUGIN_PAUSE,
+            ServerEvent.POST_PROCESSOR_START, ServerEvent.SERVER_READY);
+
+    // guarded by this
+    private final EnumMap<ServerEvent, Map<Object, ServerEventMessage>> retained = new EnumMap<>(ServerEvent.class);
+
+    /**
+     * Returns whether events of a type change what is retained, either by being retained or by dropping a retained
+     * opposite.
+     *
+     * @param type
+     * @return true if retain has an effect
+     */
+    public boolean affects(ServerEvent type) {
+        return stickyTypes.contains(type) || opposites.containsKey(type);
+    }
+
+    /**
+     * Retains an event of a sticky type, replacing any earlier one of the same type from the same source, and drops the
+     * retained opposite. Pooled events are copied only when retained.
+     *
+     * @param evt
+     */
+    public void retain(ServerEventMessage evt) {
+        ServerEvent type = evt.getType();
+        if (!affects(type)) {
+            return;
+        }
+        boolean sticky = stickyTypes.contains(type);
+        ServerEventMessage copy = sticky ? evt.detach() : null;
+        Object source = evt.getSource();
+        synchronized (this) {
+            if (sticky) {
+                retained.computeIfAbsent(type, k -> new HashMap<>()).put(source, copy);
+            }
+            ServerEvent opposite = opposites.get(type);
+            if (opposite != null) {
+                remove(opposite, source);
+            }
+        }
+    }
+
+    /**
+     * Sets the types retained, dropping retained events of types no longer sticky.
+     *
+     * @param types
+     */
+    public synchronized void setStickyTypes(Set<ServerEvent> types) {
+        Set<ServerEvent> sticky = types.isEmpty() ? EnumSet.noneOf(ServerEvent.class) : EnumSet.copyOf(types);
+        stickyTypes = sticky;
+        retained.keySet().retainAll(sticky);
+    }
+
+    public Set<ServerEvent> getStickyTypes() {
+        return Collections.unmodifiableSet(stickyTypes);
+    }
+
+    /**
+     * Returns the retained event of a type from a source.
+     *
+     * @param type
+     * @param source
+     * @return event or null if none is retained
+     */
+    public synchronized ServerEventMessage get(ServerEvent type, Object source) {
+        Map<Object, ServerEventMessage> bySource = retained.get(type);
+        return bySource != null ? bySource.get(source) : null;
+    }
+
+    /**
+     * Returns the retained events of the given types.
+     *
+     * @param types
+     * @return events
+     */
+    public synchronized List<ServerEventMessage> get(Set<ServerEvent> types) {
+        List<ServerEventMessage> events = new ArrayList<>();
+        for (ServerEvent type : types) {
+            Map<Object, ServerEventMessage> bySource = retained.get(type);
+            if (bySource != null) {
+                events.addAll(bySource.values());
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Drops the retained event of a type from a source.
+     *
+     * @param type
+     * @param source
+     * @return true if one was retained and false otherwise
+     */
+    public synchronized boolean remove(ServerEvent type, Object source) {
+        Map<Object, ServerEventMessage> bySource = retained.get(type);
+        return bySource != null && bySource.remove(source) != null;
+    }
+
+    /**
+     * Drops every retained event from a source.
+     *
+     * @param source
+     * @return true if any were retained and false otherwise
+     */
+    public synchronized boolean removeBySource(Object source) {
+        boolean removed = false;
+        for (Map<Object, ServerEventMessage> bySource : retained.values()) {
+            removed |= bySource.remove(source) != null;
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        retained.clear();
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.red5pro.server.stream;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.time.Instant;
 import java.time.temporal.ChronoField;
 import java.util.concurrent.ThreadFactory;
@@ -12,6 +15,38 @@ public class Red5ProThreadFactory implements ThreadFactory {
 
     private static Logger log = Red5LoggerFactory.getLogger(Red5ProThreadFactory.class);
 
+    // Thread.ofVirtual() and the builder's unstarted(Runnable), looked up reflectively since we build for Java 11; null before Java 21
+    private static final MethodHandle ofVirtual, unstarted;
+
+    static {
+        MethodHandle builder = null, start = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            start = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+        } catch (Throwable t) {
+            log.debug("Virtual threads are not available");
+            builder = null;
+        }
+        ofVirtual = builder;
+        unstarted = start;
+    }
+
+    // shared handler for exceptions
+    private static final UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
+
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            log.warn("Uncaught exception on {}", t.getName(), e);
+            // if its something that will kill our checker thread, make sure it respawns
+            if (e instanceof ThreadDeath) {
+                log.error("Thread died");
+            }
+        }
+
+    };
+
     private final String name;
 
     private final int priority;
@@ -22,6 +57,9 @@ public class Red5ProThreadFactory implements ThreadFactory {
     // whether or not to apply a variable suffix to the formatted name
     private boolean useSuffix;
 
+    // whether or not to create virtual threads
+    private boolean virtual;
+
     public Red5ProThreadFactory() {
         // default ctor
         name = "Red5ProThread";
@@ -51,14 +89,50 @@ public class Red5ProThreadFactory implements ThreadFactory {
         this.useSuffix = useSuffix;
     }
 
+    /**
+     * Returns a factory creating virtual threads, named as with the other constructors. On a JVM without virtual threads
+     * the factory creates platform threads instead.
+     *
+     * @param useSuffix
+     * @param name
+     * @param args
+     * @return thread factory
+     */
+    public static Red5ProThreadFactory virtual(boolean useSuffix, String name, Object... args) {
+        Red5ProThreadFactory factory = new Red5ProThreadFactory(useSuffix, name, args);
+        factory.virtual = isVirtualThreadSupported();
+        return factory;
+    }
+
+    /**
+     * Returns whether or not this JVM supports virtual threads.
+     *
+     * @return true if supported and false otherwise
+     */
+    public static boolean isVirtualThreadSupported() {
+        return ofVirtual != null;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Thread newThread(Runnable r) {
-        Thread t = new Thread(r);
-        // set as a daemon
-        t.setDaemon(true);
+        Thread t;
+        if (virtual) {
+            // virtual threads are always daemons and ignore priority
+            t = newVirtualThread(r);
+        } else {
+            t = new Thread(r);
+            // set as a daemon
+            t.setDaemon(true);
+            // set the priority
+            t.setPriority(priority);
+        }
         // a helpful name
         if (args == null) {
             t.setName(name);
@@ -71,22 +145,17 @@ public class Red5ProThreadFactory implements ThreadFactory {
                 t.setName(threadName);
             }
         }
-        // set the priority
-        t.setPriority(priority);
         // set a default handler for exceptions
-        t.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
-
-            @Override
-            public void uncaughtException(Thread t, Throwable e) {
-                log.warn("Uncaught exception on {}", t.getName(), e);
-                // if its something that will kill our checker thread, make sure it respawns
-                if (e instanceof ThreadDeath) {
-                    log.error("Thread died");
-                }
-            }
-
-        });
+        t.setUncaughtExceptionHandler(uncaughtExceptionHandler);
         return t;
     }
 
+    private static Thread newVirtualThread(Runnable r) {
+        try {
+            return (Thread) unstarted.invoke(ofVirtual.invoke(), r);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Virtual thread creation failed", t);
+        }
+    }
+
 }
@@ -1,7 +1,12 @@
 package com.red5pro.util;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
-import java.util.Optional;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.red5.server.api.scope.IBasicScope;
 import org.red5.server.api.scope.IScope;
@@ -16,6 +21,19 @@ public class ScopeUtil {
 
     private final static String SLASH = "/";
 
+    // upper bound on cached resolutions; when reached, a few entries are evicted rather than the whole cache
+    private final static int MAX_CACHED = 4096;
+
+    // entries looked at per eviction
+    private final static int SWEEP = 64;
+
+    // resolved scopes by base scope and normalized path, both held weakly so the cache never keeps a removed scope alive;
+    // a hit is checked for a stopped or detached scope before it is returned
+    private final static ConcurrentHashMap<Key, Resolved> cache = new ConcurrentHashMap<>();
+
+    // collected base and resolved scopes, whose entries are expunged on the next miss
+    private final static ReferenceQueue<IScope> collected = new ReferenceQueue<>();
+
     /**
      * Resolves the path against a given scope. An attempt to create child scopes is performed when they don't already
      * exist and all the previous steps complete. Be aware that this utility method only expects to operate on Application
@@ -34,7 +52,8 @@ public class ScopeUtil {
      * Resolves the path against a given scope. An attempt to create child scopes is performed when they don't already
      * exist and all the previous steps complete. Be aware that this utility method only expects to operate on Application
      * and Room scopes; scopes implementing Shared Object or anything additional will be checked and possibly cleaned up
-     * to prevent stale or disassociated scopes.
+     * to prevent stale or disassociated scopes. Resolved scopes are cached, weakly, while they run and stay attached to
+     * their parent.
      *
      * @param from parent scope
      * @param path child path(s)
@@ -52,6 +71,72 @@ public class ScopeUtil {
         if (path.endsWith(SLASH)) {
             path = path.substring(0, path.length() - 1);
         }
+        Key key = new Key(current, path, null);
+        Resolved cached = cache.get(key);
+        if (cached != null) {
+            IScope scope = cached.get();
+            if (scope != null && isLive(scope)) {
+                return scope;
+            }
+            // stopped, removed or collected since it was cached
+            cache.remove(key, cached);
+        }
+        expunge();
+        IScope resolved = walk(current, path, createIfAbsent, removeDangling);
+        if (resolved != null) {
+            if (cache.size() >= MAX_CACHED) {
+                evict();
+            }
+            Key stored = new Key(current, path, collected);
+            cache.put(stored, new Resolved(resolved, stored));
+        }
+        return resolved;
+    }
+
+    // whether a cached scope may still be handed out: running and still the child its parent holds under its name, which
+    // catches scopes removed without passing through invalidate
+    private static boolean isLive(IScope scope) {
+        if (!scope.isValid() || !scope.isRunning()) {
+            return false;
+        }
+        IScope parent = scope.getParent();
+        return parent == null || parent.getBasicScope(scope.getType(), scope.getName()) == scope;
+    }
+
+    // drops the entries whose base or resolved scope has been collected
+    private static void expunge() {
+        Reference<? extends IScope> ref;
+        while ((ref = collected.poll()) != null) {
+            if (ref instanceof Key) {
+                cache.remove(ref);
+            } else {
+                Resolved resolved = (Resolved) ref;
+                cache.remove(resolved.key, resolved);
+            }
+        }
+    }
+
+    // makes room for an entry: drops the dead entries among the first few, or the first entry if they are all live
+    private static void evict() {
+        int removed = 0;
+        Iterator<Map.Entry<Key, Resolved>> it = cache.entrySet().iterator();
+        for (int i = 0; i < SWEEP && it.hasNext(); i++) {
+            IScope scope = it.next().getValue().get();
+            if (scope == null || !isLive(scope)) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            it = cache.entrySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private static IScope walk(IScope current, String path, boolean createIfAbsent, boolean removeDangling) {
         log.trace("Current: {}", current);
         String[] parts = path.split(SLASH);
         if (log.isTraceEnabled()) {
@@ -86,18 +171,20 @@ public class ScopeUtil {
                 return null;
             }
             // try ROOM type first then fallback to APPLICATION type
-            IScope appOrRoomScope = Optional.ofNullable((IScope) current.getBasicScope(ScopeType.ROOM, part))
-                    .orElse((IScope) current.getBasicScope(ScopeType.APPLICATION, part));
+            IScope appOrRoomScope = (IScope) current.getBasicScope(ScopeType.ROOM, part);
+            if (appOrRoomScope == null) {
+                appOrRoomScope = (IScope) current.getBasicScope(ScopeType.APPLICATION, part);
+            }
             // if we get an application or room scope back, set it as current, otherwise return null
             if (appOrRoomScope != null) {
                 current = appOrRoomScope;
             } else if (removeDangling) {
                 // clean up the possibly dangling scope
-                Optional<IBasicScope> opt = Optional.ofNullable(current.getScope(part));
-                if (opt.isPresent()) {
-                    IBasicScope danglingScope = opt.get();
+                IBasicScope danglingScope = current.getScope(part);
+                if (danglingScope != null) {
                     log.debug("Removing dangling scope: {} from: {}", danglingScope, current);
                     current.removeChildScope(danglingScope);
+                    invalidate(danglingScope);
                 }
                 // returning null here should allow an implementer to create the child scope they wanted and not one of an unexpected type
                 return null;
@@ -107,4 +194,79 @@ public class ScopeUtil {
         return current;
     }
 
+    /**
+     * Drops cached resolutions of a scope and of the scopes beneath it, for use when the scope is removed.
+     *
+     * @param scope removed scope
+     */
+    public final static void invalidate(IBasicScope scope) {
+        // a scope's path is that of its parent
+        String path = scope.getPath() + SLASH + scope.getName();
+        cache.entrySet().removeIf(entry -> {
+            IScope base = entry.getKey().get(), resolved = entry.getValue().get();
+            return base == scope || resolved == scope || isBeneath(resolved, path) || isBeneath(base, path);
+        });
+    }
+
+    // whether a scope lies beneath the given full path; a collected scope counts as beneath so its entry goes too
+    private static boolean isBeneath(IScope scope, String path) {
+        if (scope == null) {
+            return true;
+        }
+        String scopePath = scope.getPath();
+        return scopePath != null && (scopePath.equals(path) || scopePath.startsWith(path + SLASH));
+    }
+
+    /**
+     * Drops every cached resolution.
+     */
+    public final static void clearCache() {
+        cache.clear();
+    }
+
+    // weakly held base scope by identity and path relative to it; a key whose base is collected equals only itself
+    private static final class Key extends WeakReference<IScope> {
+
+        final String path;
+
+        private final int hash;
+
+        Key(IScope base, String path, ReferenceQueue<IScope> queue) {
+            super(base, queue);
+            this.path = path;
+            this.hash = 31 * System.identityHashCode(base) + path.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            IScope base = get();
+            return base != null && base == other.get() && path.equals(other.path);
+        }
+
+    }
+
+    // weakly held resolved scope, remembering its key for expunging
+    private static final class Resolved extends WeakReference<IScope> {
+
+        final Key key;
+
+        Resolved(IScope scope, Key key) {
+            super(scope, collected);
+            this.key = key;
+        }
+
+    }
+
 }
@@ -0,0 +1,242 @@
+package example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection admission control. Each connect must take a token from its remote address's bucket and from the global
+ * bucket, and fit under the concurrent connection limit of its scope. Address buckets live in a fixed-size table of
+ * primitive arrays indexed by address hash and guarded by striped locks, so bursts from many addresses create no
+ * per-address objects; addresses whose hashes collide share a bucket, which can only make the limit stricter. A rejected
+ * connect spends no tokens, so clients turned away by the global or scope limit do not also drain their address bucket.
+ */
+public class AdmissionController {
+
+    /**
+     * Result of an admission attempt.
+     */
+    public enum Admission {
+        ADMITTED, REJECTED_ADDRESS, REJECTED_GLOBAL, REJECTED_SCOPE;
+    }
+
+    // tokens are kept in thousandths for integer refill math
+    private static final long SCALE = 1000L;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int mask;
+
+    // per-slot token count and last refill time
+    private final long[] tokens, refilled;
+
+    private final Object[] stripes;
+
+    private final long addressRate, addressBurst;
+
+    private final long globalRate, globalBurst;
+
+    private long globalTokens, globalRefilled;
+
+    private final Object globalLock = new Object();
+
+    private volatile int maxConnectionsPerScope;
+
+    private final ConcurrentHashMap<String, AtomicInteger> scopeConnections = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder(), rejectedAddress = new LongAdder(), rejectedGlobal = new LongAdder(),
+            rejectedScope = new LongAdder();
+
+    /**
+     * Creates an admission controller.
+     *
+     * @param slots address bucket slots, rounded up to a power of two
+     * @param addressRate connects per second allowed per address
+     * @param addressBurst connects allowed in a burst per address
+     * @param globalRate connects per second allowed overall
+     * @param globalBurst connects allowed in a burst overall
+     * @param maxConnectionsPerScope concurrent connections allowed per scope, zero for no limit
+     */
+    public AdmissionController(int slots, int addressRate, int addressBurst, int globalRate, int globalBurst, int maxConnectionsPerScope) {
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        mask = size - 1;
+        tokens = new long[size];
+        refilled = new long[size];
+        stripes = new Object[Math.min(size, 64)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        this.addressRate = addressRate * SCALE;
+        this.addressBurst = addressBurst * SCALE;
+        this.globalRate = globalRate * SCALE;
+        this.globalBurst = globalBurst * SCALE;
+        long now = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            tokens[i] = this.addressBurst;
+            refilled[i] = now;
+        }
+        globalTokens = this.globalBurst;
+        globalRefilled = now;
+        this.maxConnectionsPerScope = maxConnectionsPerScope;
+    }
+
+    /**
+     * Attempts to admit a connection. An admitted connection holds scope capacity until {@link #release(String)}.
+     *
+     * @param remoteAddress
+     * @param contextPath scope context path
+     * @return admission result
+     */
+    public Admission admit(String remoteAddress, String contextPath) {
+        // scope capacity is reserved first as it is the only limit that can be handed back exactly
+        if (!reserveScope(contextPath, maxConnectionsPerScope)) {
+            rejectedScope.increment();
+            return Admission.REJECTED_SCOPE;
+        }
+        long now = System.nanoTime();
+        if (remoteAddress != null && !takeAddressToken(remoteAddress, now)) {
+            release(contextPath);
+            rejectedAddress.increment();
+            return Admission.REJECTED_ADDRESS;
+        }
+        if (!takeGlobalToken(now)) {
+            if (remoteAddress != null) {
+                refundAddressToken(remoteAddress);
+            }
+            release(contextPath);
+            rejectedGlobal.increment();
+            return Admission.REJECTED_GLOBAL;
+        }
+        admitted.increment();
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * Releases the scope capacity held by an admitted connection.
+     *
+     * @param contextPath
+     */
+    public void release(String contextPath) {
+        // the entry goes once its scope is empty, so scopes that come and go do not accumulate counters
+        scopeConnections.computeIfPresent(contextPath, (k, count) -> count.decrementAndGet() > 0 ? count : null);
+    }
+
+    // counters are only created, changed and removed under the map's bin lock, so a release removing an emptied entry can
+    // never discard a connection counted concurrently
+    private boolean reserveScope(String contextPath, int max) {
+        boolean[] reserved = new boolean[1];
+        scopeConnections.compute(contextPath, (k, count) -> {
+            if (count == null) {
+                count = new AtomicInteger();
+            }
+            if (max <= 0 || count.get() < max) {
+                count.incrementAndGet();
+                reserved[0] = true;
+            }
+            return count.get() > 0 ? count : null;
+        });
+        return reserved[0];
+    }
+
+    private boolean takeAddressToken(String remoteAddress, long now) {
+        int slot = slot(remoteAddress);
+        synchronized (stripes[slot % stripes.length]) {
+            long available = refill(tokens[slot], refilled[slot], now, addressRate, addressBurst);
+            refilled[slot] = refilledAt(tokens[slot], available, refilled[slot], now, addressRate, addressBurst);
+            if (available < SCALE) {
+                tokens[slot] = available;
+                return false;
+            }
+            tokens[slot] = available - SCALE;
+            return true;
+        }
+    }
+
+    private void refundAddressToken(String remoteAddress) {
+        int slot = slot(remoteAddress);
+        synchronized (stripes[slot % stripes.length]) {
+            tokens[slot] = Math.min(addressBurst, tokens[slot] + SCALE);
+        }
+    }
+
+    private int slot(String remoteAddress) {
+        int h = remoteAddress.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private boolean takeGlobalToken(long now) {
+        synchronized (globalLock) {
+            long available = refill(globalTokens, globalRefilled, now, globalRate, globalBurst);
+            globalRefilled = refilledAt(globalTokens, available, globalRefilled, now, globalRate, globalBurst);
+            if (available < SCALE) {
+                globalTokens = available;
+                return false;
+            }
+            globalTokens = available - SCALE;
+            return true;
+        }
+    }
+
+    private static long refill(long current, long last, long now, long rate, long burst) {
+        long elapsed = now - last;
+        if (elapsed <= 0L) {
+            return current;
+        }
+        // cap elapsed time so the multiplication cannot overflow, a full burst is restored well within a minute
+        long added = Math.min(elapsed, 60L * NANOS_PER_SECOND) * rate / NANOS_PER_SECOND;
+        return Math.min(burst, current + added);
+    }
+
+    // advances the refill time only by the time turned into tokens, so the fraction of a token earned since is kept for
+    // the next attempt; attempts closer together than one thousandth of a token would otherwise never refill the bucket
+    private static long refilledAt(long current, long available, long last, long now, long rate, long burst) {
+        if (available >= burst) {
+            return now;
+        }
+        long added = available - current;
+        return added > 0L ? last + added * NANOS_PER_SECOND / rate : last;
+    }
+
+    /**
+     * Returns the connections currently admitted to a scope.
+     *
+     * @param contextPath
+     * @return connection count
+     */
+    public int getConnections(String contextPath) {
+        AtomicInteger count = scopeConnections.get(contextPath);
+        return count != null ? count.get() : 0;
+    }
+
+    public int getMaxConnectionsPerScope() {
+        return maxConnectionsPerScope;
+    }
+
+    public void setMaxConnectionsPerScope(int maxConnectionsPerScope) {
+        this.maxConnectionsPerScope = maxConnectionsPerScope;
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejectedAddress() {
+        return rejectedAddress.sum();
+    }
+
+    public long getRejectedGlobal() {
+        return rejectedGlobal.sum();
+    }
+
+    public long getRejectedScope() {
+        return rejectedScope.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionController [admitted=" + getAdmitted() + ", rejectedAddress=" + getRejectedAddress() + ", rejectedGlobal="
+                + getRejectedGlobal() + ", rejectedScope=" + getRejectedScope() + "]";
+    }
+
+}
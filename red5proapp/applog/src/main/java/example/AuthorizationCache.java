@@ -0,0 +1,281 @@
+package example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.red5.logging.Red5LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * Caches publish and playback authorization decisions so reconnect storms do not reach the auth backend for every
+ * attempt. Allowed and denied results are kept for separate TTLs, and concurrent checks for the same key share a single
+ * call to the backend. The cache is bounded with second-chance eviction: decisions are kept in insertion order, a hit
+ * only marks its decision as used, and when full the oldest unused decision is evicted while used ones move to the back.
+ * Expired decisions are swept from the front on each miss.
+ */
+public class AuthorizationCache {
+
+    private static Logger log = Red5LoggerFactory.getLogger(AuthorizationCache.class, "myapp");
+
+    private final long allowTtlNanos, denyTtlNanos;
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Decision> decisions = new ConcurrentHashMap<>();
+
+    // expired decisions removed per miss beyond those removed to make room
+    private static final int SWEEP = 8;
+
+    // joins the key fields; it cannot appear in a path, name, mode or token, so distinct checks never share a key
+    private static final char SEPARATOR = '\u0000';
+
+    // decisions in insertion order, every cached decision is linked; guarded by orderLock
+    private Decision first, last;
+
+    private int linked;
+
+    private final Object orderLock = new Object();
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), coalesced = new LongAdder(), evictions = new LongAdder(),
+            failures = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param allowTtl how long an allowed decision is kept, in milliseconds
+     * @param denyTtl how long a denied decision is kept, in milliseconds; zero disables negative caching
+     * @param maxEntries maximum decisions kept
+     */
+    public AuthorizationCache(long allowTtl, long denyTtl, int maxEntries) {
+        this.allowTtlNanos = TimeUnit.MILLISECONDS.toNanos(allowTtl);
+        this.denyTtlNanos = TimeUnit.MILLISECONDS.toNanos(denyTtl);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Builds the cache key for a check.
+     *
+     * @param contextPath scope context path
+     * @param name stream name
+     * @param mode publish mode or "play"
+     * @param token client token, may be null
+     * @return key
+     */
+    public static String key(String contextPath, String name, String mode, String token) {
+        return contextPath + SEPARATOR + name + SEPARATOR + mode + SEPARATOR + (token != null ? token : "");
+    }
+
+    /**
+     * Returns the cached decision for the key or runs the check to make one. A check that throws is treated as a denial and
+     * is not cached.
+     *
+     * @param key
+     * @param check backend authorization check
+     * @return true if allowed and false otherwise
+     */
+    public boolean isAllowed(String key, BooleanSupplier check) {
+        long now = System.nanoTime();
+        Decision decision = decisions.get(key);
+        if (decision != null && !decision.isExpired(now)) {
+            decision.referenced = true;
+            if (decision.result.isDone()) {
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+            return decision.await();
+        }
+        Decision created = new Decision(key);
+        Decision existing = decision == null ? decisions.putIfAbsent(key, created)
+                : (decisions.replace(key, decision, created) ? null : decisions.get(key));
+        if (existing != null) {
+            // another thread is already checking this key
+            coalesced.increment();
+            return existing.await();
+        }
+        misses.increment();
+        synchronized (orderLock) {
+            if (decision != null) {
+                unlink(decision);
+            }
+            append(created);
+            evict(now);
+        }
+        boolean allowed;
+        try {
+            allowed = check.getAsBoolean();
+        } catch (Throwable t) {
+            log.warn("Authorization check failed for {}", key, t);
+            failures.increment();
+            remove(created);
+            created.result.complete(Boolean.FALSE);
+            return false;
+        }
+        long ttl = allowed ? allowTtlNanos : denyTtlNanos;
+        created.expires = System.nanoTime() + ttl;
+        if (ttl <= 0) {
+            remove(created);
+        }
+        created.result.complete(allowed);
+        return allowed;
+    }
+
+    // removes decisions from the front while over capacity, giving used ones a second chance, then sweeps a few expired
+    private void evict(long now) {
+        int sweep = SWEEP, chances = linked;
+        while (first != null) {
+            Decision oldest = first;
+            boolean full = linked > maxEntries, expired = oldest.isExpired(now);
+            if (!full && (!expired || sweep-- <= 0)) {
+                break;
+            }
+            unlink(oldest);
+            if (full && !expired && oldest.referenced && chances-- > 0) {
+                oldest.referenced = false;
+                append(oldest);
+                continue;
+            }
+            // a newer decision for the key is not touched
+            if (decisions.remove(oldest.key, oldest) && !expired) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(Decision decision) {
+        if (decisions.remove(decision.key, decision)) {
+            synchronized (orderLock) {
+                unlink(decision);
+            }
+        }
+    }
+
+    private void append(Decision decision) {
+        decision.prev = last;
+        decision.next = null;
+        if (last == null) {
+            first = decision;
+        } else {
+            last.next = decision;
+        }
+        last = decision;
+        decision.linked = true;
+        linked++;
+    }
+
+    private void unlink(Decision decision) {
+        if (!decision.linked) {
+            return;
+        }
+        if (decision.prev == null) {
+            first = decision.next;
+        } else {
+            decision.prev.next = decision.next;
+        }
+        if (decision.next == null) {
+            last = decision.prev;
+        } else {
+            decision.next.prev = decision.prev;
+        }
+        decision.prev = decision.next = null;
+        decision.linked = false;
+        linked--;
+    }
+
+    /**
+     * Removes any cached decision for the key, for example when a token is revoked.
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        Decision decision = decisions.get(key);
+        if (decision != null) {
+            remove(decision);
+        }
+    }
+
+    /**
+     * Removes all cached decisions.
+     */
+    public void clear() {
+        synchronized (orderLock) {
+            while (first != null) {
+                Decision decision = first;
+                unlink(decision);
+                decisions.remove(decision.key, decision);
+            }
+            // and those not yet linked
+            decisions.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Checks that waited on an identical in-flight check instead of calling the backend.
+     *
+     * @return coalesced checks
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int size() {
+        return decisions.size();
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorizationCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", coalesced=" + getCoalesced()
+                + ", evictions=" + getEvictions() + ", failures=" + getFailures() + "]";
+    }
+
+    private static final class Decision {
+
+        final String key;
+
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        // expiry in nanos, set before the result is completed
+        volatile long expires;
+
+        // set by hits, cleared when given a second chance
+        volatile boolean referenced;
+
+        // eviction order links; guarded by orderLock
+        Decision prev, next;
+
+        boolean linked;
+
+        Decision(String key) {
+            this.key = key;
+        }
+
+        boolean isExpired(long now) {
+            return result.isDone() && now - expires > 0L;
+        }
+
+        boolean await() {
+            return result.join();
+        }
+
+    }
+
+}
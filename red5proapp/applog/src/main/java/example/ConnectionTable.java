@@ -0,0 +1,286 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.red5.server.api.IConnection.Encoding;
+
+/**
+ * State for every connection held in parallel primitive arrays of an open-addressing table keyed by connection (session)
+ * id, instead of an object per connection. Each slot records the encoding, connect time, scope and a property change
+ * counter. Scope paths are interned into a small side table so a slot stores only an index. Deletion shifts later
+ * entries back rather than leaving tombstones, so probe sequences stay short under churn.
+ */
+public class ConnectionTable {
+
+    private static final Encoding[] ENCODINGS = Encoding.values();
+
+    private String[] ids;
+
+    private byte[] encodings;
+
+    private long[] connectTimes;
+
+    private int[] scopes;
+
+    private long[] propertyChanges;
+
+    private int size;
+
+    // interned scope paths
+    private final List<String> scopePaths = new ArrayList<>();
+
+    private final Map<String, Integer> scopeIndexes = new HashMap<>();
+
+    public ConnectionTable(int initialCapacity) {
+        // keep the load factor at or under one half
+        allocate(Integer.highestOneBit(Math.max(16, initialCapacity * 4 - 1)));
+    }
+
+    private void allocate(int capacity) {
+        ids = new String[capacity];
+        encodings = new byte[capacity];
+        connectTimes = new long[capacity];
+        scopes = new int[capacity];
+        propertyChanges = new long[capacity];
+    }
+
+    private int slot(String id) {
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & (ids.length - 1);
+    }
+
+    // slot holding the id or -1
+    private int find(String id) {
+        int mask = ids.length - 1;
+        for (int i = slot(id); ids[i] != null; i = (i + 1) & mask) {
+            if (ids[i].equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds or replaces a connection's state.
+     *
+     * @param id connection id
+     * @param encoding
+     * @param contextPath scope context path
+     * @param connectTime epoch milliseconds
+     */
+    public synchronized void add(String id, Encoding encoding, String contextPath, long connectTime) {
+        if ((size + 1) * 2 > ids.length) {
+            resize(ids.length * 2);
+        }
+        int mask = ids.length - 1;
+        int i = slot(id);
+        while (ids[i] != null && !ids[i].equals(id)) {
+            i = (i + 1) & mask;
+        }
+        if (ids[i] == null) {
+            size++;
+        }
+        ids[i] = id;
+        encodings[i] = (byte) (encoding != null ? encoding.ordinal() : -1);
+        connectTimes[i] = connectTime;
+        scopes[i] = intern(contextPath);
+        propertyChanges[i] = 0L;
+    }
+
+    /**
+     * Removes a connection's state.
+     *
+     * @param id connection id
+     * @return true if removed and false if it was not present
+     */
+    public synchronized boolean remove(String id) {
+        int i = find(id);
+        if (i < 0) {
+            return false;
+        }
+        int mask = ids.length - 1;
+        // backward-shift deletion: pull later entries of the probe run into the hole when they hash at or before it
+        int hole = i;
+        for (int j = (hole + 1) & mask; ids[j] != null; j = (j + 1) & mask) {
+            int home = slot(ids[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                move(j, hole);
+                hole = j;
+            }
+        }
+        ids[hole] = null;
+        size--;
+        return true;
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        encodings[to] = encodings[from];
+        connectTimes[to] = connectTimes[from];
+        scopes[to] = scopes[from];
+        propertyChanges[to] = propertyChanges[from];
+    }
+
+    private void resize(int capacity) {
+        String[] oldIds = ids;
+        byte[] oldEncodings = encodings;
+        long[] oldConnectTimes = connectTimes;
+        int[] oldScopes = scopes;
+        long[] oldPropertyChanges = propertyChanges;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldIds.length; j++) {
+            if (oldIds[j] != null) {
+                int i = slot(oldIds[j]);
+                while (ids[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = oldIds[j];
+                encodings[i] = oldEncodings[j];
+                connectTimes[i] = oldConnectTimes[j];
+                scopes[i] = oldScopes[j];
+                propertyChanges[i] = oldPropertyChanges[j];
+            }
+        }
+    }
+
+    private int intern(String contextPath) {
+        Integer index = scopeIndexes.get(contextPath);
+        if (index == null) {
+            index = scopePaths.size();
+            scopePaths.add(contextPath);
+            scopeIndexes.put(contextPath, index);
+        }
+        return index;
+    }
+
+    /**
+     * Counts a property change on a connection.
+     *
+     * @param id connection id
+     */
+    public synchronized void propertyChanged(String id) {
+        int i = find(id);
+        if (i >= 0) {
+            propertyChanges[i]++;
+        }
+    }
+
+    /**
+     * Returns the connect time of a connection.
+     *
+     * @param id connection id
+     * @return epoch milliseconds or -1 if not present
+     */
+    public synchronized long getConnectTime(String id) {
+        int i = find(id);
+        return i >= 0 ? connectTimes[i] : -1L;
+    }
+
+    /**
+     * Returns the property changes seen on a connection.
+     *
+     * @param id connection id
+     * @return count or -1 if not present
+     */
+    public synchronized long getPropertyChanges(String id) {
+        int i = find(id);
+        return i >= 0 ? propertyChanges[i] : -1L;
+    }
+
+    /**
+     * Counts the connections matching a scope and encoding.
+     *
+     * @param contextPath scope context path or null for any
+     * @param encoding encoding or null for any
+     * @return count
+     */
+    public synchronized int count(String contextPath, Encoding encoding) {
+        int count = 0;
+        int scope = scopeFilter(contextPath);
+        if (scope == -2) {
+            return 0;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (matches(i, scope, encoding)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the ids of the connections matching a scope and encoding.
+     *
+     * @param contextPath scope context path or null for any
+     * @param encoding encoding or null for any
+     * @return connection ids
+     */
+    public synchronized List<String> find(String contextPath, Encoding encoding) {
+        List<String> found = new ArrayList<>();
+        int scope = scopeFilter(contextPath);
+        if (scope != -2) {
+            for (int i = 0; i < ids.length; i++) {
+                if (matches(i, scope, encoding)) {
+                    found.add(ids[i]);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of connections per encoding.
+     *
+     * @param contextPath scope context path or null for any
+     * @return counts indexed by encoding
+     */
+    public synchronized Map<Encoding, Integer> countByEncoding(String contextPath) {
+        int[] counts = new int[ENCODINGS.length];
+        int scope = scopeFilter(contextPath);
+        if (scope != -2) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != null && encodings[i] >= 0 && (scope == -1 || scopes[i] == scope)) {
+                    counts[encodings[i]]++;
+                }
+            }
+        }
+        Map<Encoding, Integer> result = new HashMap<>();
+        for (int e = 0; e < counts.length; e++) {
+            if (counts[e] > 0) {
+                result.put(ENCODINGS[e], counts[e]);
+            }
+        }
+        return result;
+    }
+
+    // -1 matches any scope, -2 is a scope with no connections
+    private int scopeFilter(String contextPath) {
+        if (contextPath == null) {
+            return -1;
+        }
+        Integer index = scopeIndexes.get(contextPath);
+        return index != null ? index : -2;
+    }
+
+    private boolean matches(int i, int scope, Encoding encoding) {
+        return ids[i] != null && (scope == -1 || scopes[i] == scope) && (encoding == null || encodings[i] == encoding.ordinal());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public synchronized void clear() {
+        Arrays.fill(ids, null);
+        size = 0;
+    }
+
+}
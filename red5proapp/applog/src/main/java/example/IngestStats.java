@@ -0,0 +1,198 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.server.api.stream.IBroadcastStream;
+import org.red5.server.api.stream.IStreamPacket;
+import org.red5.server.net.rtmp.event.AudioData;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.event.VideoData.FrameType;
+
+/**
+ * Ingest statistics for a single broadcast stream, fed from the packet listener. All storage is allocated up front:
+ * totals are striped {@link LongAdder}s, rolling windows come from a ring of per-second slots and distributions are
+ * kept in fixed log2 millisecond histograms, so recording a packet never allocates or locks. Runs as a
+ * {@link PacketStage} using the arrival time taken on the ingest thread, so jitter is not skewed by pipeline lag.
+ */
+public class IngestStats implements PacketStage {
+
+    // rolling windows reported, in seconds
+    public static final int[] WINDOWS = { 1, 10, 60 };
+
+    // per-second slots retained; power of two covering the largest window
+    private static final int SLOTS = 64;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    // bucket i holds values below 2^i ms, the last bucket holds everything larger
+    private static final int HISTOGRAM_BUCKETS = 20;
+
+    private final String name;
+
+    private final long created = System.currentTimeMillis();
+
+    private final LongAdder bytes = new LongAdder(), audioPackets = new LongAdder(), videoFrames = new LongAdder(),
+            keyframes = new LongAdder(), dropped = new LongAdder();
+
+    private final AtomicLongArray slotSecond = new AtomicLongArray(SLOTS), slotBytes = new AtomicLongArray(SLOTS),
+            slotAudio = new AtomicLongArray(SLOTS), slotVideo = new AtomicLongArray(SLOTS), slotKeyframes = new AtomicLongArray(SLOTS);
+
+    private final AtomicLongArray keyframeIntervals = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private final Jitter audioJitter = new Jitter(), videoJitter = new Jitter();
+
+    // stream timestamp of the last keyframe or -1 if none seen yet
+    private volatile long lastKeyframeTs = -1L;
+
+    private volatile long lastKeyframeInterval;
+
+    public IngestStats(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void onPacket(IBroadcastStream stream, IStreamPacket packet, long arrival) {
+        record(packet, arrival);
+    }
+
+    @Override
+    public void onOverflow(IBroadcastStream stream, long count) {
+        dropped.add(count);
+    }
+
+    /**
+     * Records a received packet.
+     *
+     * @param packet
+     * @param now arrival time in milliseconds
+     */
+    public void record(IStreamPacket packet, long now) {
+        IoBuffer data = packet.getData();
+        int size = data != null ? data.limit() : 0;
+        int timestamp = packet.getTimestamp();
+        int slot = slot(now / 1000L);
+        bytes.add(size);
+        slotBytes.addAndGet(slot, size);
+        if (packet instanceof VideoData) {
+            videoFrames.increment();
+            slotVideo.incrementAndGet(slot);
+            videoJitter.update(now, timestamp);
+            if (((VideoData) packet).getFrameType() == FrameType.KEYFRAME) {
+                keyframes.increment();
+                slotKeyframes.incrementAndGet(slot);
+                long previous = lastKeyframeTs;
+                if (previous >= 0 && timestamp >= previous) {
+                    lastKeyframeInterval = timestamp - previous;
+                    keyframeIntervals.incrementAndGet(bucket(timestamp - previous));
+                }
+                lastKeyframeTs = timestamp;
+            }
+        } else if (packet instanceof AudioData) {
+            audioPackets.increment();
+            slotAudio.incrementAndGet(slot);
+            audioJitter.update(now, timestamp);
+        }
+    }
+
+    // returns the slot for the given second, clearing it first if it still holds an older second
+    private int slot(long second) {
+        int slot = (int) (second & SLOT_MASK);
+        long stamp = slotSecond.get(slot);
+        if (stamp != second && slotSecond.compareAndSet(slot, stamp, second)) {
+            slotBytes.set(slot, 0L);
+            slotAudio.set(slot, 0L);
+            slotVideo.set(slot, 0L);
+            slotKeyframes.set(slot, 0L);
+        }
+        return slot;
+    }
+
+    private static int bucket(long millis) {
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return bucket < HISTOGRAM_BUCKETS ? bucket : HISTOGRAM_BUCKETS - 1;
+    }
+
+    /**
+     * Returns the totals for the last complete seconds of the given window; the current partial second is excluded.
+     *
+     * @param seconds window length, at most 60
+     * @return IngestWindow
+     */
+    public IngestWindow window(int seconds) {
+        long current = System.currentTimeMillis() / 1000L;
+        long windowBytes = 0, audio = 0, video = 0, keys = 0;
+        for (long second = current - seconds; second < current; second++) {
+            int slot = (int) (second & SLOT_MASK);
+            if (slotSecond.get(slot) == second) {
+                windowBytes += slotBytes.get(slot);
+                audio += slotAudio.get(slot);
+                video += slotVideo.get(slot);
+                keys += slotKeyframes.get(slot);
+            }
+        }
+        return new IngestWindow(seconds, windowBytes, audio, video, keys);
+    }
+
+    /**
+     * Returns a report of the totals, windows and distributions.
+     *
+     * @return IngestStatsReport
+     */
+    public IngestStatsReport report() {
+        List<IngestWindow> windows = new ArrayList<>(WINDOWS.length);
+        for (int seconds : WINDOWS) {
+            windows.add(window(seconds));
+        }
+        return new IngestStatsReport(name, System.currentTimeMillis() - created, bytes.sum(), audioPackets.sum(), videoFrames.sum(),
+                keyframes.sum(), dropped.sum(), lastKeyframeInterval, percentile(keyframeIntervals, 0.5d), percentile(keyframeIntervals, 0.95d),
+                (long) audioJitter.jitter, (long) videoJitter.jitter, windows);
+    }
+
+    // upper bound in ms of the bucket holding the given percentile, or 0 if nothing was recorded
+    private static long percentile(AtomicLongArray histogram, double percentile) {
+        long total = 0;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long target = (long) Math.ceil(total * percentile), seen = 0;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Interarrival jitter estimate in the style of RFC 3550, comparing the arrival delta against the timestamp delta.
+     * Updated only from this stage's pipeline drains, which may run on different pipeline threads but never two at once;
+     * the stage's scheduled flag in {@link PacketPipeline} orders one drain after the next, so the plain fields are safe.
+     */
+    private static final class Jitter {
+
+        long lastArrival = -1L;
+
+        int lastTimestamp;
+
+        volatile double jitter;
+
+        void update(long arrival, int timestamp) {
+            if (lastArrival >= 0) {
+                long delta = (arrival - lastArrival) - (timestamp - lastTimestamp);
+                jitter += (Math.abs(delta) - jitter) / 16d;
+            }
+            lastArrival = arrival;
+            lastTimestamp = timestamp;
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answer to a changefeed request; either the deltas since the caller's sequence number or, when the caller has fallen
+ * off the feed, a full list of stream names to resync from.
+ */
+public final class LiveStreamChanges {
+
+    private final long sequence;
+
+    private final boolean full;
+
+    private final List<LiveStreamChange> changes;
+
+    private final List<String> streams;
+
+    private LiveStreamChanges(long sequence, boolean full, List<LiveStreamChange> changes, List<String> streams) {
+        this.sequence = sequence;
+        this.full = full;
+        this.changes = changes;
+        this.streams = streams;
+    }
+
+    static LiveStreamChanges delta(long sequence, List<LiveStreamChange> changes) {
+        return new LiveStreamChanges(sequence, false, Collections.unmodifiableList(changes), Collections.emptyList());
+    }
+
+    static LiveStreamChanges full(LiveStreamSnapshot snapshot) {
+        return new LiveStreamChanges(snapshot.getEpoch(), true, Collections.emptyList(), snapshot.getStreams());
+    }
+
+    /**
+     * Sequence number to pass on the next request.
+     *
+     * @return sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Whether or not this is a full resync, in which case the caller should replace its list with {@link #getStreams()}.
+     *
+     * @return true if full and false if only deltas are included
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public List<LiveStreamChange> getChanges() {
+        return changes;
+    }
+
+    public List<String> getStreams() {
+        return streams;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveStreamChanges [sequence=" + sequence + ", full=" + full + ", changes=" + changes.size() + ", streams=" + streams.size()
+                + "]";
+    }
+
+}
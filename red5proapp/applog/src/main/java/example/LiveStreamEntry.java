@@ -0,0 +1,30 @@
+package example;
+
+/**
+ * Catalog entry for a live stream; created once when the stream is registered and shared by every query result.
+ */
+public final class LiveStreamEntry {
+
+    private final String name;
+
+    private final String contextPath;
+
+    LiveStreamEntry(String name, String contextPath) {
+        this.name = name;
+        this.contextPath = contextPath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String toString() {
+        return name + '@' + contextPath;
+    }
+
+}
@@ -14,4 +14,84 @@ public class LiveStreamListService {
         return app.getLiveStreams();
     }
 
+    /**
+     * Returns the live stream names along with the epoch they were captured at.
+     *
+     * @return LiveStreamSnapshot
+     */
+    public LiveStreamSnapshot getLiveStreamsSnapshot() {
+        return app.getLiveStreamsSnapshot();
+    }
+
+    /**
+     * Returns the live stream names if they changed since the given epoch; otherwise the result is flagged as unchanged
+     * and carries no names.
+     *
+     * @param lastEpoch epoch from the caller's previous snapshot
+     * @return LiveStreamSnapshot
+     */
+    public LiveStreamSnapshot getLiveStreamsSince(long lastEpoch) {
+        return app.getLiveStreamsSnapshot().since(lastEpoch);
+    }
+
+    /**
+     * Returns the streams added and removed since the given sequence number. Callers that have fallen too far behind get
+     * a full list instead, flagged by {@link LiveStreamChanges#isFull()}.
+     *
+     * @param since sequence number from the previous answer or epoch from a snapshot
+     * @return LiveStreamChanges
+     */
+    public LiveStreamChanges getLiveStreamChanges(long since) {
+        return app.getLiveStreamChanges(since);
+    }
+
+    /**
+     * Returns a page of live streams whose name starts with the prefix.
+     *
+     * @param prefix name prefix, empty for all streams
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit page size
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage findLiveStreams(String prefix, String cursor, int limit) {
+        return app.getLiveStreamCatalog().findByPrefix(prefix != null ? prefix : "", cursor, limit);
+    }
+
+    /**
+     * Returns a page of live streams whose name matches the wildcard pattern ('*' and '?').
+     *
+     * @param pattern wildcard pattern, empty or null for all streams
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit page size
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage matchLiveStreams(String pattern, String cursor, int limit) {
+        if (pattern == null || pattern.isEmpty()) {
+            pattern = "*";
+        }
+        return app.getLiveStreamCatalog().findByPattern(pattern, cursor, limit);
+    }
+
+    /**
+     * Returns a page of the live streams in the scope with the given context path.
+     *
+     * @param contextPath scope context path
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit page size
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage getScopeLiveStreams(String contextPath, String cursor, int limit) {
+        return app.getLiveStreamCatalog().findByScope(contextPath, null, cursor, limit);
+    }
+
+    /**
+     * Returns the ingest statistics (bitrate, frame rate, keyframe interval and jitter) for a live stream.
+     *
+     * @param name published name
+     * @return IngestStatsReport or null if the stream is not live
+     */
+    public IngestStatsReport getIngestStats(String name) {
+        return app.getIngestStats(name);
+    }
+
 }
@@ -0,0 +1,229 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.red5.server.api.stream.IBroadcastStream;
+
+/**
+ * Registry of live broadcast streams. Streams are held by their primary key (published name and context path) with
+ * secondary indexes by published name and by scope context path, so that each lookup is a hash hit regardless of how
+ * many streams are live. Mutations are serialized on the registry so the three indexes never drift apart, while reads
+ * are lock-free. Every registration change bumps the registry epoch, which tags the cached per-scope snapshots of stream
+ * names and numbers the records appended to the changefeed.
+ */
+public class LiveStreamRegistry {
+
+    // primary index keyed by name@contextPath
+    private final ConcurrentHashMap<String, IBroadcastStream> streams = new ConcurrentHashMap<>();
+
+    // secondary index: published name to streams keyed by context path
+    private final ConcurrentHashMap<String, Map<String, IBroadcastStream>> byName = new ConcurrentHashMap<>();
+
+    // per-scope index: context path to streams keyed by published name
+    private final ConcurrentHashMap<String, Map<String, IBroadcastStream>> byScope = new ConcurrentHashMap<>();
+
+    // cached stream name snapshots keyed by context path
+    private final ConcurrentHashMap<String, LiveStreamSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    // bumped on every publish start / close, only written while holding the registry lock
+    private volatile long epoch;
+
+    // recent adds and removes, sequenced by epoch
+    private final LiveStreamChangeFeed changeFeed;
+
+    // sorted index for paginated searches
+    private final LiveStreamCatalog catalog = new LiveStreamCatalog();
+
+    public LiveStreamRegistry() {
+        this(1024);
+    }
+
+    /**
+     * Creates a registry whose changefeed retains the given number of most recent changes.
+     *
+     * @param changeFeedCapacity
+     */
+    public LiveStreamRegistry(int changeFeedCapacity) {
+        changeFeed = new LiveStreamChangeFeed(changeFeedCapacity);
+    }
+
+    /**
+     * Returns the primary key for a stream name and context path.
+     *
+     * @param name published name
+     * @param contextPath scope context path
+     * @return key
+     */
+    public static String key(String name, String contextPath) {
+        return name + '@' + contextPath;
+    }
+
+    /**
+     * Adds a stream to all indexes, replacing any stream already registered under the same name and context path.
+     *
+     * @param stream
+     * @return previously registered stream or null
+     */
+    public IBroadcastStream register(IBroadcastStream stream) {
+        String name = stream.getPublishedName();
+        String contextPath = stream.getScope().getContextPath();
+        synchronized (this) {
+            IBroadcastStream previous = streams.put(key(name, contextPath), stream);
+            byName.computeIfAbsent(name, k -> new ConcurrentHashMap<>()).put(contextPath, stream);
+            byScope.computeIfAbsent(contextPath, k -> new ConcurrentHashMap<>()).put(name, stream);
+            catalog.add(name, contextPath);
+            advance(LiveStreamChange.Type.ADD, name, contextPath);
+            return previous;
+        }
+    }
+
+    /**
+     * Removes a stream from all indexes.
+     *
+     * @param stream
+     * @return removed stream or null if it was not registered
+     */
+    public IBroadcastStream unregister(IBroadcastStream stream) {
+        return unregister(stream.getScope().getContextPath(), stream.getPublishedName());
+    }
+
+    /**
+     * Removes the stream registered for the context path and name from all indexes.
+     *
+     * @param contextPath
+     * @param name
+     * @return removed stream or null if it was not registered
+     */
+    public IBroadcastStream unregister(String contextPath, String name) {
+        synchronized (this) {
+            IBroadcastStream removed = streams.remove(key(name, contextPath));
+            if (removed != null) {
+                removeFromIndex(byName, name, contextPath);
+                removeFromIndex(byScope, contextPath, name);
+                catalog.remove(name, contextPath);
+                advance(LiveStreamChange.Type.REMOVE, name, contextPath);
+            }
+            return removed;
+        }
+    }
+
+    // record the change before publishing the new epoch so readers never see a sequence without its record
+    private void advance(LiveStreamChange.Type type, String name, String contextPath) {
+        long next = epoch + 1;
+        changeFeed.append(new LiveStreamChange(next, type, name, contextPath));
+        epoch = next;
+    }
+
+    private static void removeFromIndex(ConcurrentHashMap<String, Map<String, IBroadcastStream>> index, String outer, String inner) {
+        Map<String, IBroadcastStream> entries = index.get(outer);
+        if (entries != null) {
+            entries.remove(inner);
+            if (entries.isEmpty()) {
+                index.remove(outer);
+            }
+        }
+    }
+
+    /**
+     * Returns the stream for the context path and name.
+     *
+     * @param contextPath
+     * @param name
+     * @return stream or null if not found
+     */
+    public IBroadcastStream get(String contextPath, String name) {
+        return streams.get(key(name, contextPath));
+    }
+
+    /**
+     * Returns a stream with the given published name in any scope.
+     *
+     * @param name
+     * @return stream or null if not found
+     */
+    public IBroadcastStream getByName(String name) {
+        Map<String, IBroadcastStream> entries = byName.get(name);
+        if (entries != null) {
+            Iterator<IBroadcastStream> it = entries.values().iterator();
+            if (it.hasNext()) {
+                return it.next();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the streams published in the scope with the given context path.
+     *
+     * @param contextPath
+     * @return unmodifiable view of the streams, empty if there are none
+     */
+    public Collection<IBroadcastStream> getByScope(String contextPath) {
+        Map<String, IBroadcastStream> entries = byScope.get(contextPath);
+        return entries != null ? Collections.unmodifiableCollection(entries.values()) : Collections.emptyList();
+    }
+
+    /**
+     * Returns all registered streams.
+     *
+     * @return unmodifiable view of the streams
+     */
+    public Collection<IBroadcastStream> getAll() {
+        return Collections.unmodifiableCollection(streams.values());
+    }
+
+    /**
+     * Returns the cached snapshot of stream names published in the scope with the given context path. The snapshot is
+     * only rebuilt when the epoch has moved since it was cached.
+     *
+     * @param contextPath
+     * @return LiveStreamSnapshot
+     */
+    public LiveStreamSnapshot snapshot(String contextPath) {
+        long current = epoch;
+        LiveStreamSnapshot snapshot = snapshots.get(contextPath);
+        if (snapshot == null || snapshot.getEpoch() != current) {
+            // names are collected after reading the epoch, so a racing change at worst causes one extra rebuild
+            Map<String, IBroadcastStream> entries = byScope.get(contextPath);
+            snapshot = new LiveStreamSnapshot(current, entries != null ? new ArrayList<>(entries.keySet()) : new ArrayList<>(0));
+            snapshots.merge(contextPath, snapshot, (cached, built) -> cached.getEpoch() >= built.getEpoch() ? cached : built);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the changes in the scope with the given context path after the given sequence number. If the changes are no
+     * longer retained by the changefeed, a full snapshot of the scope is returned instead.
+     *
+     * @param since sequence from the caller's previous answer
+     * @param contextPath
+     * @return LiveStreamChanges
+     */
+    public LiveStreamChanges changesSince(long since, String contextPath) {
+        long current = epoch;
+        List<LiveStreamChange> changes = changeFeed.since(since, current, contextPath);
+        if (changes == null) {
+            return LiveStreamChanges.full(snapshot(contextPath));
+        }
+        return LiveStreamChanges.delta(current, changes);
+    }
+
+    public LiveStreamCatalog getCatalog() {
+        return catalog;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public int size() {
+        return streams.size();
+    }
+
+}
@@ -0,0 +1,30 @@
+package example;
+
+import org.red5.server.api.stream.IBroadcastStream;
+import org.red5.server.api.stream.IStreamPacket;
+
+/**
+ * Consumer of a broadcast's packets registered with a {@link PacketPipeline}. Stages run off the ingest thread, one packet
+ * at a time and in publish order.
+ */
+public interface PacketStage {
+
+    /**
+     * Handles a packet.
+     *
+     * @param stream broadcast stream
+     * @param packet copy of the published packet, shared with the other stages
+     * @param arrival time in milliseconds the packet arrived on the ingest thread
+     */
+    void onPacket(IBroadcastStream stream, IStreamPacket packet, long arrival);
+
+    /**
+     * Called when the stage fell so far behind that packets were overwritten before it could handle them.
+     *
+     * @param stream broadcast stream
+     * @param dropped number of packets the stage missed
+     */
+    default void onOverflow(IBroadcastStream stream, long dropped) {
+    }
+
+}
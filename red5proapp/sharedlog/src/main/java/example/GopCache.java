@@ -0,0 +1,289 @@
+package example;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.server.api.stream.IBroadcastStream;
+import org.red5.server.api.stream.IStreamListener;
+import org.red5.server.api.stream.IStreamPacket;
+import org.red5.server.net.rtmp.event.AudioData;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.event.VideoData.FrameType;
+import org.red5.server.net.rtmp.message.Constants;
+
+/**
+ * Keeps the audio and video packets since the last video keyframe for each broadcast, so in-app stream listeners joining
+ * mid-GOP can be primed without waiting for the next keyframe. Each stream gets one fixed-size direct buffer at its first
+ * keyframe: one freed by a closed stream, a new one while the global budget allows, or else the buffer of the least
+ * recently used stream, so the direct memory allocated never exceeds the budget. A GOP that outgrows its buffer, or loses
+ * packets to pipeline overflow, is dropped until the next keyframe.
+ */
+public class GopCache implements PacketStage {
+
+    // packet record header: data type, timestamp and payload length
+    private static final int HEADER_SIZE = 1 + 4 + 4;
+
+    private final int streamCapacity;
+
+    private final long budget;
+
+    private final ConcurrentHashMap<IBroadcastStream, GopBuffer> buffers = new ConcurrentHashMap<>();
+
+    // buffers holding memory, in access order; guarded by itself
+    private final LinkedHashMap<GopBuffer, Boolean> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+    // buffers of closed streams, handed to the next stream needing one; guarded by lru
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    // direct memory allocated, in use or free; guarded by lru
+    private long allocated;
+
+    /**
+     * Creates a cache.
+     *
+     * @param streamCapacity bytes of direct memory per stream
+     * @param budget bytes of direct memory across all streams
+     */
+    public GopCache(int streamCapacity, long budget) {
+        this.streamCapacity = streamCapacity;
+        this.budget = budget;
+    }
+
+    /**
+     * Starts caching for a stream; memory is not allocated until its first keyframe.
+     *
+     * @param stream
+     */
+    public void open(IBroadcastStream stream) {
+        buffers.put(stream, new GopBuffer(stream));
+    }
+
+    /**
+     * Stops caching for a stream, keeping its buffer for the next stream needing one.
+     *
+     * @param stream
+     */
+    public void close(IBroadcastStream stream) {
+        GopBuffer gop = buffers.remove(stream);
+        if (gop != null) {
+            release(gop);
+        }
+    }
+
+    /**
+     * Appends a packet to the stream's current GOP, starting a new GOP on a video keyframe.
+     *
+     * @param stream
+     * @param packet
+     */
+    public void record(IBroadcastStream stream, IStreamPacket packet) {
+        GopBuffer gop = buffers.get(stream);
+        if (gop != null) {
+            boolean keyframe = packet instanceof VideoData && ((VideoData) packet).getFrameType() == FrameType.KEYFRAME;
+            if (keyframe && gop.buffer == null) {
+                // allocate outside the buffer lock, eviction takes the budget lock and then the victim's lock
+                allocate(gop);
+            }
+            gop.write(packet, keyframe);
+        }
+    }
+
+    @Override
+    public void onPacket(IBroadcastStream stream, IStreamPacket packet, long arrival) {
+        record(stream, packet);
+    }
+
+    @Override
+    public void onOverflow(IBroadcastStream stream, long dropped) {
+        GopBuffer gop = buffers.get(stream);
+        if (gop != null) {
+            gop.invalidate();
+        }
+    }
+
+    /**
+     * Replays the cached GOP of a stream to a listener, oldest packet first.
+     *
+     * @param stream
+     * @param listener
+     * @return number of packets replayed
+     */
+    public int replay(IBroadcastStream stream, IStreamListener listener) {
+        GopBuffer gop = buffers.get(stream);
+        if (gop == null) {
+            return 0;
+        }
+        synchronized (lru) {
+            // mark as recently used
+            lru.get(gop);
+        }
+        List<IStreamPacket> packets = gop.read();
+        for (IStreamPacket packet : packets) {
+            listener.packetReceived(stream, packet);
+        }
+        return packets.size();
+    }
+
+    private void allocate(GopBuffer gop) {
+        synchronized (lru) {
+            if (buffers.get(gop.stream) != gop) {
+                // closed while we were on our way here
+                return;
+            }
+            ByteBuffer buffer = free.poll();
+            if (buffer == null && allocated + streamCapacity <= budget) {
+                buffer = ByteBuffer.allocateDirect(streamCapacity);
+                allocated += streamCapacity;
+            }
+            // over budget, the least recently used stream hands its buffer over rather than leaving it to the GC
+            Iterator<GopBuffer> it = lru.keySet().iterator();
+            while (buffer == null && it.hasNext()) {
+                GopBuffer victim = it.next();
+                it.remove();
+                buffer = victim.evict();
+            }
+            if (buffer != null) {
+                lru.put(gop, Boolean.TRUE);
+                gop.assign(buffer);
+            }
+        }
+    }
+
+    private void release(GopBuffer gop) {
+        synchronized (lru) {
+            if (lru.remove(gop) != null) {
+                ByteBuffer buffer = gop.evict();
+                if (buffer != null) {
+                    free.push(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the direct memory allocated, whether held by a stream or free; it never exceeds the budget.
+     *
+     * @return bytes allocated
+     */
+    public long getAllocated() {
+        synchronized (lru) {
+            return allocated;
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Single stream ring holding the packets since the last keyframe. Packets are written from the cache's pipeline drains
+     * for the stream, which may run on different pipeline threads but never two at once, ordered by the stage's scheduled
+     * flag in {@link PacketPipeline}. Readers and budget eviction on other threads synchronize on the buffer.
+     */
+    private static final class GopBuffer {
+
+        final IBroadcastStream stream;
+
+        volatile ByteBuffer buffer;
+
+        // whether the buffer holds a complete GOP starting at a keyframe
+        boolean valid;
+
+        int count;
+
+        GopBuffer(IBroadcastStream stream) {
+            this.stream = stream;
+        }
+
+        synchronized void assign(ByteBuffer buffer) {
+            buffer.clear();
+            this.buffer = buffer;
+            valid = false;
+            count = 0;
+        }
+
+        synchronized ByteBuffer evict() {
+            ByteBuffer evicted = buffer;
+            buffer = null;
+            valid = false;
+            count = 0;
+            return evicted;
+        }
+
+        synchronized void invalidate() {
+            valid = false;
+        }
+
+        synchronized void write(IStreamPacket packet, boolean keyframe) {
+            if (buffer == null) {
+                return;
+            }
+            if (keyframe) {
+                buffer.clear();
+                count = 0;
+                valid = true;
+            } else if (!valid) {
+                return;
+            }
+            byte dataType;
+            if (packet instanceof VideoData || packet instanceof AudioData) {
+                dataType = packet.getDataType();
+            } else {
+                return;
+            }
+            IoBuffer data = packet.getData();
+            int size = data != null ? data.limit() : 0;
+            if (buffer.remaining() < HEADER_SIZE + size) {
+                // the GOP outgrew the buffer, wait for the next keyframe
+                valid = false;
+                return;
+            }
+            buffer.put(dataType).putInt(packet.getTimestamp()).putInt(size);
+            if (size > 0) {
+                ByteBuffer src = data.buf().duplicate();
+                src.limit(size).position(0);
+                buffer.put(src);
+            }
+            count++;
+        }
+
+        synchronized List<IStreamPacket> read() {
+            if (buffer == null || !valid) {
+                return Collections.emptyList();
+            }
+            List<IStreamPacket> packets = new ArrayList<>(count);
+            ByteBuffer view = buffer.duplicate();
+            view.flip();
+            while (view.remaining() >= HEADER_SIZE) {
+                byte dataType = view.get();
+                int timestamp = view.getInt();
+                byte[] payload = new byte[view.getInt()];
+                view.get(payload);
+                if (dataType == Constants.TYPE_VIDEO_DATA) {
+                    VideoData video = new VideoData(IoBuffer.wrap(payload));
+                    video.setTimestamp(timestamp);
+                    packets.add(video);
+                } else {
+                    AudioData audio = new AudioData(IoBuffer.wrap(payload));
+                    audio.setTimestamp(timestamp);
+                    packets.add(audio);
+                }
+            }
+            return packets;
+        }
+
+        @Override
+        public String toString() {
+            return "GopBuffer [stream=" + stream.getPublishedName() + ", count=" + count + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time view of a stream's ingest statistics.
+ */
+public final class IngestStatsReport {
+
+    private final String name;
+
+    private final long uptime, bytes, audioPackets, videoFrames, keyframes, dropped;
+
+    private final long lastKeyframeInterval, keyframeIntervalP50, keyframeIntervalP95;
+
+    private final long audioJitter, videoJitter;
+
+    private final List<IngestWindow> windows;
+
+    IngestStatsReport(String name, long uptime, long bytes, long audioPackets, long videoFrames, long keyframes, long dropped,
+            long lastKeyframeInterval, long keyframeIntervalP50, long keyframeIntervalP95, long audioJitter, long videoJitter, List<IngestWindow> windows) {
+        this.name = name;
+        this.uptime = uptime;
+        this.bytes = bytes;
+        this.audioPackets = audioPackets;
+        this.videoFrames = videoFrames;
+        this.keyframes = keyframes;
+        this.dropped = dropped;
+        this.lastKeyframeInterval = lastKeyframeInterval;
+        this.keyframeIntervalP50 = keyframeIntervalP50;
+        this.keyframeIntervalP95 = keyframeIntervalP95;
+        this.audioJitter = audioJitter;
+        this.videoJitter = videoJitter;
+        this.windows = Collections.unmodifiableList(windows);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Milliseconds since the stream started publishing.
+     *
+     * @return uptime
+     */
+    public long getUptime() {
+        return uptime;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getAudioPackets() {
+        return audioPackets;
+    }
+
+    public long getVideoFrames() {
+        return videoFrames;
+    }
+
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * Packets the statistics stage missed because it fell behind the ingest pipeline.
+     *
+     * @return dropped packets
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getLastKeyframeInterval() {
+        return lastKeyframeInterval;
+    }
+
+    /**
+     * Median keyframe interval in milliseconds, rounded up to a power of two.
+     *
+     * @return interval
+     */
+    public long getKeyframeIntervalP50() {
+        return keyframeIntervalP50;
+    }
+
+    /**
+     * 95th percentile keyframe interval in milliseconds, rounded up to a power of two.
+     *
+     * @return interval
+     */
+    public long getKeyframeIntervalP95() {
+        return keyframeIntervalP95;
+    }
+
+    /**
+     * Audio interarrival jitter estimate in milliseconds.
+     *
+     * @return jitter
+     */
+    public long getAudioJitter() {
+        return audioJitter;
+    }
+
+    /**
+     * Video interarrival jitter estimate in milliseconds.
+     *
+     * @return jitter
+     */
+    public long getVideoJitter() {
+        return videoJitter;
+    }
+
+    /**
+     * Rolling 1, 10 and 60 second windows.
+     *
+     * @return windows
+     */
+    public List<IngestWindow> getWindows() {
+        return windows;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestStatsReport [name=" + name + ", bytes=" + bytes + ", videoFrames=" + videoFrames + ", keyframes=" + keyframes
+                + ", windows=" + windows + "]";
+    }
+
+}
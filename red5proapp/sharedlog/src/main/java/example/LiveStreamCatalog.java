@@ -0,0 +1,150 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted catalog of live streams supporting paginated prefix, wildcard and per-scope queries. Entries are kept in two
+ * skip-lists, one ordered by published name and one by context path then name, so a query seeks directly to the first
+ * candidate and only walks as far as the page requires. Cursors are the sort key of the last entry returned.
+ */
+public class LiveStreamCatalog {
+
+    // upper bound for any page
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // sorts after every character that can appear in a name
+    private static final char HIGH = '\uffff';
+
+    // sorts before every character that can appear in a name or path, so composite keys order by their first part and
+    // a name containing a printable delimiter cannot be confused with the boundary between the parts
+    private static final char SEPARATOR = '\u0000';
+
+    // keyed by name, separator, contextPath
+    private final ConcurrentSkipListMap<String, LiveStreamEntry> byName = new ConcurrentSkipListMap<>();
+
+    // keyed by contextPath, separator, name
+    private final ConcurrentSkipListMap<String, LiveStreamEntry> byScope = new ConcurrentSkipListMap<>();
+
+    void add(String name, String contextPath) {
+        LiveStreamEntry entry = new LiveStreamEntry(name, contextPath);
+        byName.put(name + SEPARATOR + contextPath, entry);
+        byScope.put(contextPath + SEPARATOR + name, entry);
+    }
+
+    void remove(String name, String contextPath) {
+        byName.remove(name + SEPARATOR + contextPath);
+        byScope.remove(contextPath + SEPARATOR + name);
+    }
+
+    /**
+     * Returns streams whose published name starts with the prefix, in name order.
+     *
+     * @param prefix name prefix, empty for all streams
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit maximum entries to return
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage findByPrefix(String prefix, String cursor, int limit) {
+        return page(byName, prefix, cursor, limit, null);
+    }
+
+    /**
+     * Returns streams whose published name matches a wildcard pattern, in name order. A '*' matches any run of characters
+     * and a '?' matches a single character. Only the literal prefix ahead of the first wildcard narrows the seek, so sparse
+     * matches may scan past non-matching entries.
+     *
+     * @param pattern wildcard pattern
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit maximum entries to return
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage findByPattern(String pattern, String cursor, int limit) {
+        int wildcard = 0;
+        while (wildcard < pattern.length() && pattern.charAt(wildcard) != '*' && pattern.charAt(wildcard) != '?') {
+            wildcard++;
+        }
+        if (wildcard == pattern.length()) {
+            // no wildcards present, so its an exact name across all scopes
+            return page(byName, pattern + SEPARATOR, cursor, limit, null);
+        }
+        return page(byName, pattern.substring(0, wildcard), cursor, limit, pattern);
+    }
+
+    /**
+     * Returns streams published in the scope with the given context path whose name starts with the prefix, in name order.
+     *
+     * @param contextPath scope context path
+     * @param prefix name prefix, empty or null for all streams in the scope
+     * @param cursor cursor from the previous page or null for the first page
+     * @param limit maximum entries to return
+     * @return LiveStreamPage
+     */
+    public LiveStreamPage findByScope(String contextPath, String prefix, String cursor, int limit) {
+        return page(byScope, contextPath + SEPARATOR + (prefix != null ? prefix : ""), cursor, limit, null);
+    }
+
+    private static LiveStreamPage page(NavigableMap<String, LiveStreamEntry> index, String from, String cursor, int limit, String pattern) {
+        int max = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String to = from + HIGH;
+        NavigableMap<String, LiveStreamEntry> range;
+        if (cursor != null && cursor.compareTo(from) >= 0) {
+            if (cursor.compareTo(to) >= 0) {
+                return new LiveStreamPage(new ArrayList<>(0), null);
+            }
+            range = index.subMap(cursor, false, to, false);
+        } else {
+            range = index.subMap(from, true, to, false);
+        }
+        List<LiveStreamEntry> streams = new ArrayList<>(Math.min(max, 64));
+        String last = null;
+        for (Entry<String, LiveStreamEntry> entry : range.entrySet()) {
+            if (pattern == null || matches(pattern, entry.getValue().getName())) {
+                streams.add(entry.getValue());
+                last = entry.getKey();
+                if (streams.size() == max) {
+                    break;
+                }
+            }
+        }
+        return new LiveStreamPage(streams, streams.size() == max ? last : null);
+    }
+
+    /**
+     * Wildcard match supporting '*' and '?' without compiling a regular expression.
+     *
+     * @param pattern
+     * @param name
+     * @return true if the name matches
+     */
+    static boolean matches(String pattern, String name) {
+        int p = 0, n = 0, star = -1, mark = 0;
+        while (n < name.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                p++;
+                n++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = n;
+            } else if (star != -1) {
+                // backtrack, letting the last star absorb one more character
+                p = star + 1;
+                n = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+}
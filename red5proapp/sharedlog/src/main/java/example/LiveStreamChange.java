@@ -0,0 +1,48 @@
+package example;
+
+/**
+ * A single addition or removal in the live stream catalog, numbered by the registry epoch it produced.
+ */
+public final class LiveStreamChange {
+
+    public enum Type {
+        ADD, REMOVE;
+    }
+
+    private final long sequence;
+
+    private final Type type;
+
+    private final String name;
+
+    private final String contextPath;
+
+    LiveStreamChange(long sequence, Type type, String name, String contextPath) {
+        this.sequence = sequence;
+        this.type = type;
+        this.name = name;
+        this.contextPath = contextPath;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveStreamChange [sequence=" + sequence + ", type=" + type + ", name=" + name + ", contextPath=" + contextPath + "]";
+    }
+
+}
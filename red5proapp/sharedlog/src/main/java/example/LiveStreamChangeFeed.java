@@ -0,0 +1,68 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded in-memory ring of live stream changes. A single writer (the registry, under its lock) appends records with
+ * consecutive sequence numbers; readers are lock-free and detect overwritten slots by checking each record's sequence.
+ */
+public class LiveStreamChangeFeed {
+
+    private final AtomicReferenceArray<LiveStreamChange> ring;
+
+    private final int capacity;
+
+    public LiveStreamChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Appends a change record. Sequence numbers must be consecutive and callers must not append concurrently.
+     *
+     * @param change
+     */
+    void append(LiveStreamChange change) {
+        ring.set(slot(change.getSequence()), change);
+    }
+
+    /**
+     * Returns the changes after the given sequence up to and including the current one, limited to a context path.
+     *
+     * @param since last sequence the caller has seen
+     * @param current latest appended sequence
+     * @param contextPath context path to filter on or null for all scopes
+     * @return list of changes or null if the caller has fallen off the ring
+     */
+    List<LiveStreamChange> since(long since, long current, String contextPath) {
+        if (since < 0 || since > current || current - since > capacity) {
+            return null;
+        }
+        List<LiveStreamChange> changes = new ArrayList<>((int) (current - since));
+        for (long seq = since + 1; seq <= current; seq++) {
+            LiveStreamChange change = ring.get(slot(seq));
+            if (change == null || change.getSequence() != seq) {
+                // overwritten by a newer lap of the ring while we were reading
+                return null;
+            }
+            if (contextPath == null || contextPath.equals(change.getContextPath())) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+}
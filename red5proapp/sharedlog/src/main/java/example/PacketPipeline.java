@@ -0,0 +1,424 @@
+package example;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.red5.logging.Red5LoggerFactory;
+import org.red5.server.api.stream.IBroadcastStream;
+import org.red5.server.api.stream.IStreamListener;
+import org.red5.server.api.stream.IStreamPacket;
+import org.red5.server.net.rtmp.event.AudioData;
+import org.red5.server.net.rtmp.event.VideoData;
+import org.red5.server.net.rtmp.message.Constants;
+import org.slf4j.Logger;
+
+/**
+ * Single-producer, multi-consumer ring of packets for one broadcast. The ingest thread claims the next slot, writes the
+ * packet into it and publishes the cursor; it never waits on consumers. Each {@link PacketStage} tracks its own position
+ * and drains on the shared executor. A stage that falls a full ring behind finds its next slot overwritten and is handled
+ * according to its {@link OverflowPolicy}.
+ * <p>
+ * Red5 may reuse or release a packet's buffer once packetReceived returns, so the ring holds a copy of the data type,
+ * timestamp and payload, taken on the ingest thread; stages must not rely on the original packet object. Audio and video
+ * are copied as {@link AudioData} and {@link VideoData}. A copy is shared by every stage, which must not move its buffer's
+ * position, and its slot is cleared once every stage has passed it, so the ring holds only the packets still in flight.
+ */
+public class PacketPipeline {
+
+    private static Logger log = Red5LoggerFactory.getLogger(PacketPipeline.class, "myplugin");
+
+    /**
+     * What to do with a stage that has been lapped by the producer.
+     */
+    public enum OverflowPolicy {
+        /** skip ahead to the oldest packet still in the ring and keep going */
+        SKIP,
+        /** remove the stage from the pipeline */
+        DETACH;
+    }
+
+    // packets handled per drain before yielding the executor thread
+    private static final int BATCH_SIZE = 256;
+
+    private final IBroadcastStream stream;
+
+    private final Executor executor;
+
+    private final int mask;
+
+    // slot sequence, -1 while the producer is writing the slot
+    private final AtomicLongArray sequences;
+
+    private final AtomicReferenceArray<IStreamPacket> packets;
+
+    private final AtomicLongArray arrivals;
+
+    // last published sequence
+    private volatile long cursor = -1L;
+
+    // last sequence every stage has passed, whose slots are cleared
+    private final AtomicLong released = new AtomicLong(-1L);
+
+    private volatile StageRunner[] stages = new StageRunner[0];
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param stream broadcast stream
+     * @param executor executor the stages drain on
+     * @param capacity slots in the ring, rounded up to a power of two
+     */
+    public PacketPipeline(IBroadcastStream stream, Executor executor, int capacity) {
+        this.stream = stream;
+        this.executor = executor;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, -1L);
+        }
+        packets = new AtomicReferenceArray<>(size);
+        arrivals = new AtomicLongArray(size);
+    }
+
+    /**
+     * Publishes a packet to every stage. Must only be called from the broadcast's ingest thread.
+     *
+     * @param packet
+     */
+    public void publish(IStreamPacket packet) {
+        StageRunner[] current = stages;
+        long next = cursor + 1;
+        int slot = (int) (next & mask);
+        sequences.set(slot, -1L);
+        // with no stages the slot is left empty, which a stage added meanwhile skips
+        packets.set(slot, current.length > 0 ? copy(packet) : null);
+        arrivals.set(slot, System.currentTimeMillis());
+        sequences.set(slot, next);
+        cursor = next;
+        for (StageRunner runner : current) {
+            runner.schedule();
+        }
+    }
+
+    // copies what the stages read out of a packet whose buffer belongs to Red5
+    private static IStreamPacket copy(IStreamPacket packet) {
+        IoBuffer data = packet.getData();
+        int size = data != null ? data.limit() : 0;
+        byte[] payload = new byte[size];
+        if (size > 0) {
+            ByteBuffer src = data.buf().duplicate();
+            src.limit(size).position(0);
+            src.get(payload);
+        }
+        int timestamp = packet.getTimestamp();
+        switch (packet.getDataType()) {
+            case Constants.TYPE_VIDEO_DATA:
+                VideoData video = new VideoData(IoBuffer.wrap(payload));
+                video.setTimestamp(timestamp);
+                return video;
+            case Constants.TYPE_AUDIO_DATA:
+                AudioData audio = new AudioData(IoBuffer.wrap(payload));
+                audio.setTimestamp(timestamp);
+                return audio;
+            default:
+                return new PacketCopy(packet.getDataType(), timestamp, IoBuffer.wrap(payload));
+        }
+    }
+
+    // clears the slots every current stage has passed
+    private void release() {
+        long passed = cursor;
+        for (StageRunner runner : stages) {
+            passed = Math.min(passed, runner.consumed);
+        }
+        long from = released.get();
+        if (passed <= from || !released.compareAndSet(from, passed)) {
+            return;
+        }
+        // older slots have been overwritten already
+        for (long seq = Math.max(from + 1, passed - mask); seq <= passed; seq++) {
+            int slot = (int) (seq & mask);
+            IStreamPacket packet = packets.get(slot);
+            // only the copy of that sequence, never one the producer has written since
+            if (packet != null && sequences.get(slot) == seq) {
+                packets.compareAndSet(slot, packet, null);
+            }
+        }
+    }
+
+    /**
+     * Adds a stage which will see packets published from now on.
+     *
+     * @param stage
+     * @param policy
+     */
+    public synchronized void addStage(PacketStage stage, OverflowPolicy policy) {
+        StageRunner[] current = stages;
+        StageRunner[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new StageRunner(stage, policy, cursor);
+        stages = updated;
+    }
+
+    /**
+     * Adds an in-app stream listener as a stage.
+     *
+     * @param listener
+     * @param policy
+     */
+    public void addStage(IStreamListener listener, OverflowPolicy policy) {
+        addStage((PacketStage) (stream, packet, arrival) -> listener.packetReceived(stream, packet), policy);
+    }
+
+    /**
+     * Removes a stage.
+     *
+     * @param stage
+     * @return true if removed and false otherwise
+     */
+    public synchronized boolean removeStage(PacketStage stage) {
+        StageRunner[] current = stages;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].stage == stage) {
+                StageRunner[] updated = new StageRunner[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                stages = updated;
+                current[i].detached = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Detaches all stages; packets already published are no longer delivered.
+     */
+    public synchronized void close() {
+        for (StageRunner runner : stages) {
+            runner.detached = true;
+        }
+        stages = new StageRunner[0];
+        for (int i = 0; i <= mask; i++) {
+            packets.set(i, null);
+        }
+    }
+
+    /**
+     * Returns the state of each stage.
+     *
+     * @return list of stage stats
+     */
+    public List<StageStats> getStageStats() {
+        StageRunner[] current = stages;
+        List<StageStats> stats = new ArrayList<>(current.length);
+        long head = cursor;
+        for (StageRunner runner : current) {
+            stats.add(new StageStats(runner.stage.getClass().getSimpleName(), runner.policy, head - runner.consumed, runner.processed,
+                    runner.dropped, runner.processed > 0 ? runner.nanos / runner.processed : 0L));
+        }
+        return stats;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Drains the ring for one stage. Only one drain per stage runs at a time, guarded by the scheduled flag.
+     */
+    private final class StageRunner implements Runnable {
+
+        final PacketStage stage;
+
+        final OverflowPolicy policy;
+
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // last sequence handled
+        volatile long consumed;
+
+        volatile long processed, dropped, nanos;
+
+        volatile boolean detached;
+
+        StageRunner(PacketStage stage, OverflowPolicy policy, long start) {
+            this.stage = stage;
+            this.policy = policy;
+            this.consumed = start;
+        }
+
+        void schedule() {
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // executor is shutting down, the ingest thread must not see this
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+                release();
+            } finally {
+                scheduled.set(false);
+            }
+            // catch a publish that landed after our last look at the cursor
+            if (!detached && consumed < cursor) {
+                schedule();
+            }
+        }
+
+        private void drain() {
+            long next = consumed + 1;
+            for (int handled = 0; handled < BATCH_SIZE && !detached && next <= cursor; handled++, next++) {
+                int slot = (int) (next & mask);
+                IStreamPacket packet = null;
+                long arrival = 0L;
+                if (sequences.get(slot) == next) {
+                    packet = packets.get(slot);
+                    arrival = arrivals.get(slot);
+                }
+                if (packet == null && sequences.get(slot) == next) {
+                    // published before this stage was added
+                    consumed = next;
+                    continue;
+                }
+                if (packet == null || sequences.get(slot) != next) {
+                    // overwritten before we got to it
+                    if (!overflow(next)) {
+                        return;
+                    }
+                    next = consumed;
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    stage.onPacket(stream, packet, arrival);
+                } catch (Throwable t) {
+                    log.warn("Exception in pipeline stage {} for {}", stage, stream.getPublishedName(), t);
+                }
+                nanos += System.nanoTime() - start;
+                processed++;
+                consumed = next;
+            }
+        }
+
+        // returns true if the stage should continue from its updated position
+        private boolean overflow(long missed) {
+            if (policy == OverflowPolicy.DETACH) {
+                log.warn("Detaching slow pipeline stage {} from {}", stage, stream.getPublishedName());
+                removeStage(stage);
+                return false;
+            }
+            // resume from the oldest slot the producer cannot have overwritten yet
+            long resume = Math.max(missed, cursor - mask + 1);
+            long lost = resume - missed;
+            dropped += lost;
+            log.debug("Pipeline stage {} for {} skipped {} packets", stage, stream.getPublishedName(), lost);
+            stage.onOverflow(stream, lost);
+            consumed = resume - 1;
+            return true;
+        }
+
+    }
+
+    /**
+     * Copy of a packet which is neither audio nor video.
+     */
+    private static final class PacketCopy implements IStreamPacket {
+
+        private final byte dataType;
+
+        private final int timestamp;
+
+        private final IoBuffer data;
+
+        PacketCopy(byte dataType, int timestamp, IoBuffer data) {
+            this.dataType = dataType;
+            this.timestamp = timestamp;
+            this.data = data;
+        }
+
+        @Override
+        public byte getDataType() {
+            return dataType;
+        }
+
+        @Override
+        public int getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public IoBuffer getData() {
+            return data;
+        }
+
+    }
+
+    /**
+     * Point-in-time view of a stage.
+     */
+    public static final class StageStats {
+
+        private final String stage;
+
+        private final OverflowPolicy policy;
+
+        private final long lag, processed, dropped, averageNanos;
+
+        StageStats(String stage, OverflowPolicy policy, long lag, long processed, long dropped, long averageNanos) {
+            this.stage = stage;
+            this.policy = policy;
+            this.lag = lag;
+            this.processed = processed;
+            this.dropped = dropped;
+            this.averageNanos = averageNanos;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public OverflowPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Packets published but not yet handled by the stage.
+         *
+         * @return lag
+         */
+        public long getLag() {
+            return lag;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getAverageNanos() {
+            return averageNanos;
+        }
+
+    }
+
+}
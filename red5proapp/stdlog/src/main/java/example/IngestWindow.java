@@ -0,0 +1,54 @@
+package example;
+
+/**
+ * Ingest totals over a rolling window with the derived rates.
+ */
+public final class IngestWindow {
+
+    private final int seconds;
+
+    private final long bytes, audioPackets, videoFrames, keyframes;
+
+    IngestWindow(int seconds, long bytes, long audioPackets, long videoFrames, long keyframes) {
+        this.seconds = seconds;
+        this.bytes = bytes;
+        this.audioPackets = audioPackets;
+        this.videoFrames = videoFrames;
+        this.keyframes = keyframes;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getAudioPackets() {
+        return audioPackets;
+    }
+
+    public long getVideoFrames() {
+        return videoFrames;
+    }
+
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    public long getBitrate() {
+        return bytes * 8L / seconds;
+    }
+
+    public double getFrameRate() {
+        return (double) videoFrames / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestWindow [seconds=" + seconds + ", bitrate=" + getBitrate() + ", frameRate=" + getFrameRate() + ", keyframes=" + keyframes
+                + "]";
+    }
+
+}
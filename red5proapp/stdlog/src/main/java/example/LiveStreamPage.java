@@ -0,0 +1,38 @@
+package example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of catalog query results along with the cursor to pass to fetch the next page.
+ */
+public final class LiveStreamPage {
+
+    private final List<LiveStreamEntry> streams;
+
+    private final String cursor;
+
+    LiveStreamPage(List<LiveStreamEntry> streams, String cursor) {
+        this.streams = Collections.unmodifiableList(streams);
+        this.cursor = cursor;
+    }
+
+    public List<LiveStreamEntry> getStreams() {
+        return streams;
+    }
+
+    /**
+     * Returns the continuation cursor.
+     *
+     * @return cursor for the next page or null if there are no more results
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveStreamPage [streams=" + streams.size() + ", cursor=" + cursor + "]";
+    }
+
+}
@@ -0,0 +1,67 @@
+package example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable list of live stream names tagged with the registry epoch it was built at. Instances are cached and handed
+ * out as-is until a publish starts or closes, so repeated reads do not allocate.
+ */
+public final class LiveStreamSnapshot {
+
+    private final long epoch;
+
+    private final List<String> streams;
+
+    private final boolean changed;
+
+    // shared answer for callers that already hold this epoch
+    private final LiveStreamSnapshot unchanged;
+
+    LiveStreamSnapshot(long epoch, List<String> streams) {
+        this.epoch = epoch;
+        this.streams = Collections.unmodifiableList(streams);
+        this.changed = true;
+        this.unchanged = new LiveStreamSnapshot(epoch);
+    }
+
+    private LiveStreamSnapshot(long epoch) {
+        this.epoch = epoch;
+        this.streams = Collections.emptyList();
+        this.changed = false;
+        this.unchanged = this;
+    }
+
+    /**
+     * Returns this snapshot or, if the caller already holds this epoch, a shared "unchanged" answer without the names.
+     *
+     * @param lastEpoch epoch the caller last received
+     * @return LiveStreamSnapshot
+     */
+    public LiveStreamSnapshot since(long lastEpoch) {
+        return lastEpoch == epoch ? unchanged : this;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public List<String> getStreams() {
+        return streams;
+    }
+
+    /**
+     * Whether or not the stream list changed since the epoch the caller passed in.
+     *
+     * @return true if the stream names are included and false if the caller's list is current
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "LiveStreamSnapshot [epoch=" + epoch + ", changed=" + changed + ", streams=" + streams.size() + "]";
+    }
+
+}
@@ -1,17 +1,19 @@
 package example;
 
 import java.beans.PropertyChangeEvent;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.red5.server.adapter.MultiThreadedApplicationAdapter;
 import org.red5.server.api.IConnection;
 import org.red5.server.api.IConnection.Encoding;
+import org.red5.server.api.Red5;
 import org.red5.server.api.listeners.AbstractConnectionListener;
 import org.red5.server.api.scope.IScope;
 import org.red5.server.api.stream.IBroadcastStream;
@@ -40,18 +42,81 @@ public class MyApp extends MultiThreadedApplicationAdapter implements IStreamLis
 
     private static boolean isDebug = log.isDebugEnabled();
 
-    private static ConcurrentHashMap<String, IBroadcastStream> liveStreams = new ConcurrentHashMap<>();
+    private static LiveStreamRegistry liveStreams = new LiveStreamRegistry();
+
+    // ingest statistics keyed by the broadcast stream instance, so the per-packet lookup needs no key building
+    private static ConcurrentHashMap<IBroadcastStream, IngestStats> ingestStats = new ConcurrentHashMap<>();
+
+    // packets since the last keyframe per stream for priming new subscribers; 2MiB per stream, 256MiB overall
+    private static GopCache gopCache = new GopCache(2 * 1024 * 1024, 256L * 1024 * 1024);
+
+    // per-broadcast packet fan-out, the ingest thread only publishes into these
+    private static ConcurrentHashMap<IBroadcastStream, PacketPipeline> pipelines = new ConcurrentHashMap<>();
+
+    // slots per broadcast pipeline
+    private static int pipelineCapacity = 1024;
+
+    // runs the pipeline stages off the ingest threads
+    private ExecutorService pipelineExecutor;
+
+    // publish and playback decisions; allowed for 30s, denied for 5s, up to 10k entries
+    private static AuthorizationCache authCache = new AuthorizationCache(30000L, 5000L, 10000);
+
+    // signed stream tokens, only enforced once keys are configured
+    private static StreamTokenVerifier tokenVerifier = new StreamTokenVerifier();
+
+    // connection attribute holding the scope path whose capacity an admitted connection holds
+    private static final String ADMITTED_SCOPE = "myapp.admittedScope";
+
+    // connect rate limits: 10/s per address (burst 20), 1000/s overall (burst 2000), 50k concurrent per scope
+    private static AdmissionController admissionController = new AdmissionController(4096, 10, 20, 1000, 2000, 50000);
+
+    // state of every connection, kept in primitive arrays rather than an object per connection
+    private static ConnectionTable connections = new ConnectionTable(1024);
+
+    // one stateless listener shared by all connections
+    private static final AbstractConnectionListener connectionListener = new AbstractConnectionListener() {
+
+        @Override
+        public void notifyConnected(IConnection conn) {
+            // this event has already fired by the time we add this listener, so we will never recieve it here..
+        }
+
+        @Override
+        public void notifyDisconnected(IConnection conn) {
+            connections.remove(conn.getSessionId());
+        }
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            log.debug("Connection propertyChange: {}", evt);
+            if (evt.getSource() instanceof IConnection) {
+                connections.propertyChanged(((IConnection) evt.getSource()).getSessionId());
+            }
+        }
+
+    };
 
     @Override
     public boolean appStart(IScope scope) {
         log.info("appStart");
+        final AtomicInteger threadCount = new AtomicInteger();
+        pipelineExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "myapp-pipeline-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
         // register publish security
         registerStreamPublishSecurity(new IStreamPublishSecurity() {
 
             @Override
             public boolean isPublishAllowed(IScope scope, String name, String mode) {
-                log.info("isPublishAllowed {} {}", scope.getContextPath(), name);
-                return true;
+                if (!verifyToken("publish", scope, name)) {
+                    log.debug("Publish token rejected for {} {}", scope.getContextPath(), name);
+                    return false;
+                }
+                String key = AuthorizationCache.key(scope.getContextPath(), name, mode, getClientToken());
+                return authCache.isAllowed(key, () -> checkPublish(scope, name, mode));
             }
 
         });        
@@ -60,55 +125,194 @@ public class MyApp extends MultiThreadedApplicationAdapter implements IStreamLis
 
             @Override
             public boolean isPlaybackAllowed(IScope scope, String name, int start, int length, boolean flushPlaylist) {
-                log.info("isPlaybackAllowed {} {}", scope.getContextPath(), name);
-                return true;
+                if (!verifyToken("play", scope, name)) {
+                    log.debug("Playback token rejected for {} {}", scope.getContextPath(), name);
+                    return false;
+                }
+                String key = AuthorizationCache.key(scope.getContextPath(), name, "play", getClientToken());
+                return authCache.isAllowed(key, () -> checkPlayback(scope, name));
             }
 
         });
         return true;
     }
 
+    /**
+     * Publish authorization against the backend; only called on an authorization cache miss.
+     *
+     * @param scope
+     * @param name
+     * @param mode
+     * @return true if allowed and false otherwise
+     */
+    protected boolean checkPublish(IScope scope, String name, String mode) {
+        log.info("isPublishAllowed {} {}", scope.getContextPath(), name);
+        return true;
+    }
+
+    /**
+     * Playback authorization against the backend; only called on an authorization cache miss.
+     *
+     * @param scope
+     * @param name
+     * @return true if allowed and false otherwise
+     */
+    protected boolean checkPlayback(IScope scope, String name) {
+        log.info("isPlaybackAllowed {} {}", scope.getContextPath(), name);
+        return true;
+    }
+
+    // the token the client connected with, so cached decisions are not shared between clients with different credentials
+    private static String getClientToken() {
+        IConnection conn = Red5.getConnectionLocal();
+        if (conn != null && conn.getConnectParams() != null) {
+            Object token = conn.getConnectParams().get("token");
+            return token != null ? token.toString() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Verifies the signed stream token from the connection parameters or, failing that, from the stream name's query
+     * string. Always passes when no token keys are configured.
+     *
+     * @param action "publish" or "play"
+     * @param scope
+     * @param name
+     * @return true if the token is valid or tokens are not in use
+     */
+    protected boolean verifyToken(String action, IScope scope, String name) {
+        if (tokenVerifier.getKeyCount() == 0) {
+            return true;
+        }
+        String token = getClientToken();
+        if (token != null) {
+            return tokenVerifier.verify(token, action, scope.getContextPath(), name);
+        }
+        return tokenVerifier.verifyQuery(action, scope.getContextPath(), name);
+    }
+
+    /**
+     * Sets the stream token signing keys as comma separated {@code keyId:secret} pairs. Setting a new list rotates the keys
+     * without interrupting checks in progress; keep the previous key in the list until its tokens have expired.
+     *
+     * @param tokenKeys
+     */
+    public void setTokenKeys(String tokenKeys) {
+        Map<String, byte[]> secrets = new HashMap<>();
+        for (String pair : tokenKeys.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon > 0) {
+                secrets.put(pair.substring(0, colon).trim(), pair.substring(colon + 1).trim().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        tokenVerifier.setKeys(secrets);
+        // decisions cached under the old keys no longer apply
+        authCache.clear();
+    }
+
+    public StreamTokenVerifier getTokenVerifier() {
+        return tokenVerifier;
+    }
+
+    public AuthorizationCache getAuthorizationCache() {
+        return authCache;
+    }
+
     @Override
     public void appStop(IScope scope) {
         log.info("appStop");
+        if (pipelineExecutor != null) {
+            pipelineExecutor.shutdownNow();
+        }
         super.appStop(scope);
     }
 
     @Override
     public boolean appConnect(IConnection conn, Object[] params) {
         log.info("appConnect");
+        String contextPath = conn.getScope().getContextPath();
+        AdmissionController.Admission admission = admissionController.admit(conn.getRemoteAddress(), contextPath);
+        if (admission != AdmissionController.Admission.ADMITTED) {
+            log.debug("Connection from {} rejected: {}", conn.getRemoteAddress(), admission);
+            return false;
+        }
+        conn.setAttribute(ADMITTED_SCOPE, contextPath);
         // debug for publish security at this stage
         log.debug("Security implementations - publish: {} playback: {}", getStreamPublishSecurity(), getStreamPlaybackSecurity());
         // show type of client encoding / protocol
         Encoding encoding = conn.getEncoding();
         log.debug("Connection encoding: {}", encoding);
-        // add a connection listener for the property changes
-        conn.addListener(new AbstractConnectionListener() {
-            @Override
-            public void notifyConnected(IConnection conn) {
-                // this event has already fired by the time we add this listener, so we will never recieve it here..
-            }
-
-            @Override
-            public void notifyDisconnected(IConnection conn) {
-                // no-op
-            }
-
-            @Override
-            public void propertyChange(PropertyChangeEvent evt) {
-                log.debug("Connection propertyChange: {}", evt);
-            }
-
-        });
-        return super.appConnect(conn, params);
+        // track the connection and listen for its property changes
+        connections.add(conn.getSessionId(), encoding, contextPath, System.currentTimeMillis());
+        conn.addListener(connectionListener);
+        if (!super.appConnect(conn, params)) {
+            conn.removeListener(connectionListener);
+            connections.remove(conn.getSessionId());
+            releaseAdmission(conn);
+            return false;
+        }
+        return true;
     }
 
     @Override
     public void appDisconnect(IConnection conn) {
         log.info("appDisconnect");
+        releaseAdmission(conn);
+        conn.removeListener(connectionListener);
+        connections.remove(conn.getSessionId());
         super.appDisconnect(conn);
     }
 
+    // returns the scope capacity held by an admitted connection, at most once
+    private void releaseAdmission(IConnection conn) {
+        Object contextPath = conn.getAttribute(ADMITTED_SCOPE);
+        if (contextPath != null && conn.removeAttribute(ADMITTED_SCOPE)) {
+            admissionController.release((String) contextPath);
+        }
+    }
+
+    /**
+     * Sets the maximum number of concurrent connections admitted per scope, zero for no limit.
+     *
+     * @param maxConnectionsPerScope
+     */
+    public void setMaxConnectionsPerScope(int maxConnectionsPerScope) {
+        admissionController.setMaxConnectionsPerScope(maxConnectionsPerScope);
+    }
+
+    /**
+     * Returns the connection state table for queries by scope and encoding.
+     *
+     * @return ConnectionTable
+     */
+    public ConnectionTable getConnectionTable() {
+        return connections;
+    }
+
+    /**
+     * Counts the connections in a scope using an encoding.
+     *
+     * @param contextPath scope context path or null for any
+     * @param encoding encoding name in any case, such as "AMF3" or "rtp", or null for any
+     * @return connection count, zero for an unknown encoding
+     */
+    public int getConnectionCount(String contextPath, String encoding) {
+        if (encoding == null) {
+            return connections.count(contextPath, null);
+        }
+        for (Encoding candidate : Encoding.values()) {
+            if (candidate.name().equalsIgnoreCase(encoding)) {
+                return connections.count(contextPath, candidate);
+            }
+        }
+        return 0;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
     @Override
     public void streamPublishStart(IBroadcastStream stream) {
         log.info("streamPublishStart: {}", stream);
@@ -121,23 +325,41 @@ public class MyApp extends MultiThreadedApplicationAdapter implements IStreamLis
     @Override
     public void streamBroadcastStart(IBroadcastStream stream) {
         log.info("streamBroadcastStart: {}", stream.getPublishedName());
-        String key = String.format("%s@%s", stream.getPublishedName(), stream.getScope().getContextPath());
-        // add to the live streams map
-        liveStreams.put(key, stream);
+        // add to the live streams registry
+        liveStreams.register(stream);
+        // collect ingest statistics and the last GOP from the stream packets, off the ingest thread
+        IngestStats stats = new IngestStats(stream.getPublishedName());
+        ingestStats.put(stream, stats);
+        gopCache.open(stream);
+        PacketPipeline pipeline = new PacketPipeline(stream, pipelineExecutor, pipelineCapacity);
+        pipeline.addStage(stats, PacketPipeline.OverflowPolicy.SKIP);
+        pipeline.addStage(gopCache, PacketPipeline.OverflowPolicy.SKIP);
+        pipelines.put(stream, pipeline);
+        stream.addStreamListener(this);
         super.streamBroadcastStart(stream);
     }
 
     @Override
     public void streamBroadcastClose(IBroadcastStream stream) {
         log.info("streamBroadcastClose: {}", stream.getPublishedName());
-        String key = String.format("%s@%s", stream.getPublishedName(), stream.getScope().getContextPath());
-        // remove from the live streams map
-        liveStreams.remove(key);
+        // remove from the live streams registry
+        liveStreams.unregister(stream);
+        stream.removeStreamListener(this);
+        PacketPipeline pipeline = pipelines.remove(stream);
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        ingestStats.remove(stream);
+        gopCache.close(stream);
         super.streamBroadcastClose(stream);
     }
 
     @Override
     public void packetReceived(IBroadcastStream stream, IStreamPacket packet) {
+        PacketPipeline pipeline = pipelines.get(stream);
+        if (pipeline != null) {
+            pipeline.publish(packet);
+        }
         if (isDebug) {
             log.debug("packetReceived: {}", stream.getPublishedName());
             if (packet instanceof AudioData) {
@@ -175,34 +397,108 @@ public class MyApp extends MultiThreadedApplicationAdapter implements IStreamLis
 
     public IProStream getStream(String path, String name) {
         log.info("getStream - path: {} name: {}", path, name);
-        String key = String.format("%s@%s", name, path);
-        return (IProStream) liveStreams.get(key);
+        return (IProStream) liveStreams.get(path, name);
     }
 
     public IProStream getLiveStream(String streamName) {
         log.info("getLiveStream: {}", streamName);
-        AtomicReference<IProStream> stream = new AtomicReference<>();
-        liveStreams.forEach((key, value) -> {
-            if (value.getPublishedName().equals(streamName)) {
-                stream.compareAndSet(null, (IProStream) value);
-            }
-        });
-        return stream.get();
+        return (IProStream) liveStreams.getByName(streamName);
     }
 
     public List<String> getLiveStreams() {
-        log.info("getLiveStreams()");
-        // create a list of available stream names
-        final Set<String> streams = new HashSet<>();
-        // run through the stream names for the scope
-        getBroadcastStreamNames(scope).forEach(streamName -> {
-            IProStream stream = getLiveStream(streamName);
-            if (stream != null) {
-                streams.add(stream.getPublishedName());
-            }
-        });
-        log.info("Streams: {}", streams);
-        return streams.stream().collect(Collectors.toCollection(ArrayList::new));
+        log.debug("getLiveStreams()");
+        return getLiveStreamsSnapshot().getStreams();
+    }
+
+    /**
+     * Returns the cached snapshot of stream names live in the application scope.
+     *
+     * @return LiveStreamSnapshot
+     */
+    public LiveStreamSnapshot getLiveStreamsSnapshot() {
+        return liveStreams.snapshot(scope.getContextPath());
+    }
+
+    /**
+     * Returns the live stream additions and removals in the application scope since the given sequence number, or a full
+     * list if those changes are no longer retained.
+     *
+     * @param since sequence number from the previous answer
+     * @return LiveStreamChanges
+     */
+    public LiveStreamChanges getLiveStreamChanges(long since) {
+        return liveStreams.changesSince(since, scope.getContextPath());
+    }
+
+    /**
+     * Registers an in-app consumer of a live stream's packets. The stage runs off the ingest thread and is handled with the
+     * given policy if it falls a full pipeline behind.
+     *
+     * @param path scope context path
+     * @param name published name
+     * @param stage packet consumer
+     * @param policy overflow policy
+     * @return true if the stream is live and the stage was added
+     */
+    public boolean addPacketStage(String path, String name, PacketStage stage, PacketPipeline.OverflowPolicy policy) {
+        IBroadcastStream stream = liveStreams.get(path, name);
+        PacketPipeline pipeline = stream != null ? pipelines.get(stream) : null;
+        if (pipeline != null) {
+            pipeline.addStage(stage, policy);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replays the packets cached since a live stream's last keyframe to an in-app listener, such as one just added as a
+     * stream listener or pipeline stage, so it can start from the current GOP. Subscriber streams are not primed, as
+     * their delivery path is not open to the application.
+     *
+     * @param path scope context path
+     * @param name published name
+     * @param listener listener to replay to
+     * @return number of packets replayed
+     */
+    public int replayGop(String path, String name, IStreamListener listener) {
+        IBroadcastStream stream = liveStreams.get(path, name);
+        return stream != null ? gopCache.replay(stream, listener) : 0;
+    }
+
+    /**
+     * Returns the ingest statistics for a live stream.
+     *
+     * @param path scope context path
+     * @param name published name
+     * @return IngestStatsReport or null if the stream is not live
+     */
+    public IngestStatsReport getIngestStats(String path, String name) {
+        IBroadcastStream stream = liveStreams.get(path, name);
+        return getIngestStats(stream);
+    }
+
+    /**
+     * Returns the ingest statistics for a live stream with the given published name in any scope.
+     *
+     * @param name published name
+     * @return IngestStatsReport or null if the stream is not live
+     */
+    public IngestStatsReport getIngestStats(String name) {
+        return getIngestStats(liveStreams.getByName(name));
+    }
+
+    private IngestStatsReport getIngestStats(IBroadcastStream stream) {
+        IngestStats stats = stream != null ? ingestStats.get(stream) : null;
+        return stats != null ? stats.report() : null;
+    }
+
+    /**
+     * Returns the sorted catalog of live streams for paginated searches.
+     *
+     * @return LiveStreamCatalog
+     */
+    public LiveStreamCatalog getLiveStreamCatalog() {
+        return liveStreams.getCatalog();
     }
 
 }
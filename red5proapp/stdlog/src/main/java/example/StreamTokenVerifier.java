@@ -0,0 +1,310 @@
+package example;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Verifies HMAC-SHA256 signed, expiring stream tokens inline on the connect / publish / play path. A token has the form
+ * {@code <keyId>.<expiry>.<signature>} where expiry is in epoch seconds and the signature is the lowercase hex HMAC of
+ * {@code <action>:<contextPath>:<streamName>:<keyId>.<expiry>} using the identified key. None of the action, context path,
+ * stream name or key id may contain a ':', so each signed message names exactly one stream and action; tokens for such
+ * streams are rejected rather than verified against an ambiguous message.
+ * <p>
+ * Verification walks the token in place without regular expressions or substrings, feeds the signed bytes from a
+ * per-thread scratch buffer into a per-thread {@link Mac} already initialized with the key, and compares the signature in
+ * constant time. Keys are held in an immutable ring that is swapped atomically, so rotation never pauses verification
+ * and in-flight checks finish against the ring they started with.
+ */
+public class StreamTokenVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    // HMAC-SHA256 output length
+    private static final int MAC_LENGTH = 32;
+
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private volatile KeyEntry[] keys = new KeyEntry[0];
+
+    /**
+     * Replaces all keys. Checks already running keep using the previous keys.
+     *
+     * @param secrets key id to secret
+     */
+    public synchronized void setKeys(Map<String, byte[]> secrets) {
+        KeyEntry[] updated = new KeyEntry[secrets.size()];
+        int i = 0;
+        for (Map.Entry<String, byte[]> secret : secrets.entrySet()) {
+            updated[i++] = new KeyEntry(secret.getKey(), secret.getValue());
+        }
+        keys = updated;
+    }
+
+    /**
+     * Adds or replaces a key, for example the next key during a rotation.
+     *
+     * @param keyId
+     * @param secret
+     */
+    public synchronized void addKey(String keyId, byte[] secret) {
+        KeyEntry[] current = keys;
+        KeyEntry[] updated = Arrays.copyOf(current, current.length + 1);
+        int last = current.length;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id.equals(keyId)) {
+                updated = current.clone();
+                last = i;
+                break;
+            }
+        }
+        updated[last] = new KeyEntry(keyId, secret);
+        keys = updated;
+    }
+
+    /**
+     * Removes a key once tokens signed with it should no longer be accepted.
+     *
+     * @param keyId
+     * @return true if removed and false otherwise
+     */
+    public synchronized boolean removeKey(String keyId) {
+        KeyEntry[] current = keys;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id.equals(keyId)) {
+                KeyEntry[] updated = new KeyEntry[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                keys = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies a token passed separately from the stream name, such as a connection parameter.
+     *
+     * @param token
+     * @param action "publish" or "play"
+     * @param contextPath scope context path
+     * @param name stream name, anything from a '?' onward is ignored
+     * @return true if the token is valid for the stream and action and has not expired
+     */
+    public boolean verify(String token, String action, String contextPath, String name) {
+        return verify(token, 0, token.length(), action, contextPath, name, nameLength(name), System.currentTimeMillis() / 1000L);
+    }
+
+    /**
+     * Verifies the token carried in the stream name's query string as {@code token=...}.
+     *
+     * @param action "publish" or "play"
+     * @param contextPath scope context path
+     * @param name stream name including its query string
+     * @return true if a valid token is present and false otherwise
+     */
+    public boolean verifyQuery(String action, String contextPath, String name) {
+        int query = name.indexOf('?');
+        if (query < 0) {
+            return false;
+        }
+        int start = query + 1;
+        while (start < name.length()) {
+            int end = name.indexOf('&', start);
+            if (end < 0) {
+                end = name.length();
+            }
+            if (name.startsWith("token=", start)) {
+                return verify(name, start + 6, end, action, contextPath, name, query, System.currentTimeMillis() / 1000L);
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Verifies the token held in {@code source[start, end)} against the stream name held in {@code name[0, nameEnd)}.
+     *
+     * @param source string holding the token
+     * @param start token start index
+     * @param end token end index
+     * @param action
+     * @param contextPath
+     * @param name
+     * @param nameEnd end index of the stream name
+     * @param now current time in epoch seconds
+     * @return true if valid and false otherwise
+     */
+    public boolean verify(String source, int start, int end, String action, String contextPath, String name, int nameEnd, long now) {
+        // key id runs up to the first '.'
+        int dot1 = source.indexOf('.', start);
+        if (dot1 <= start || dot1 >= end) {
+            return false;
+        }
+        // expiry runs up to the second '.'
+        int dot2 = source.indexOf('.', dot1 + 1);
+        if (dot2 <= dot1 + 1 || dot2 >= end || end - dot2 - 1 != MAC_LENGTH * 2) {
+            return false;
+        }
+        long expiry = 0L;
+        for (int i = dot1 + 1; i < dot2; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9' || expiry > (Long.MAX_VALUE - 9) / 10) {
+                return false;
+            }
+            expiry = expiry * 10 + (c - '0');
+        }
+        if (expiry < now) {
+            return false;
+        }
+        KeyEntry key = find(source, start, dot1);
+        if (key == null) {
+            return false;
+        }
+        Scratch buf = scratch.get();
+        buf.reset();
+        // a ':' inside any field would let the message be split another way and so sign for a different stream
+        if (!buf.appendField(action, 0, action.length()) || !buf.appendField(contextPath, 0, contextPath.length())
+                || !buf.appendField(name, 0, nameEnd) || source.lastIndexOf(':', dot1) >= start) {
+            return false;
+        }
+        buf.append(source, start, dot2);
+        Mac mac = key.mac.get();
+        mac.update(buf.bytes, 0, buf.length);
+        try {
+            mac.doFinal(buf.digest, 0);
+        } catch (GeneralSecurityException e) {
+            mac.reset();
+            return false;
+        }
+        // constant-time compare against the hex signature
+        int diff = 0;
+        for (int i = 0, p = dot2 + 1; i < MAC_LENGTH; i++, p += 2) {
+            int hi = hex(source.charAt(p)), lo = hex(source.charAt(p + 1));
+            diff |= (hi | lo) >>> 31;
+            diff |= ((hi << 4) | lo) ^ (buf.digest[i] & 0xff);
+        }
+        return diff == 0;
+    }
+
+    private KeyEntry find(String source, int start, int end) {
+        int length = end - start;
+        for (KeyEntry key : keys) {
+            if (key.id.length() == length && source.regionMatches(start, key.id, 0, length)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    // lowercase hex digit value or -1
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static int nameLength(String name) {
+        int query = name.indexOf('?');
+        return query < 0 ? name.length() : query;
+    }
+
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    /**
+     * A signing key with a {@link Mac} per thread, initialized once and reused for every check on that thread.
+     */
+    private static final class KeyEntry {
+
+        final String id;
+
+        final ThreadLocal<Mac> mac;
+
+        KeyEntry(String id, byte[] secret) {
+            this.id = id;
+            final SecretKeySpec spec = new SecretKeySpec(secret, ALGORITHM);
+            mac = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac instance = Mac.getInstance(ALGORITHM);
+                    instance.init(spec);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Per-thread UTF-8 scratch space for the signed message and the computed digest.
+     */
+    private static final class Scratch {
+
+        byte[] bytes = new byte[512];
+
+        final byte[] digest = new byte[MAC_LENGTH];
+
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void append(char c) {
+            ensure(1);
+            bytes[length++] = (byte) c;
+        }
+
+        // appends s[start, end) followed by the ':' delimiter, false if the field itself holds a ':'
+        boolean appendField(String s, int start, int end) {
+            int colon = s.indexOf(':', start);
+            if (colon >= 0 && colon < end) {
+                return false;
+            }
+            append(s, start, end);
+            append(':');
+            return true;
+        }
+
+        void append(String s, int start, int end) {
+            ensure((end - start) * 3);
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xc0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    bytes[length++] = (byte) (0xf0 | (cp >> 18));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    bytes[length++] = (byte) (0xe0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+    }
+
+}
@@ -3,7 +3,10 @@ package example;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -38,46 +41,71 @@ public class Red5ProTemplatePlugin extends Red5ProPlugin {
         PluginRegistry.register(this);
         // dispatch start event
         dispatchServerEvent(ServerEvent.build(ServerEvent.PLUGIN_START, this, NAME));
-        // spawn a new thread that will wait for the server to be ready before starting the plugin
-        executor.execute(() -> {
-            Thread.currentThread().setName("Red5ProTemplatePlugin-Startup");
-            while (!Red5ProPlugin.isReady()) {
-                try {
-                    Thread.sleep(100L); // adjust sleep time as needed
-                } catch (InterruptedException e) {
-                    log.warn("Error waiting for server to be ready", e);
-                }
+        // when started through startProPlugin the server is already ready and this work shows in the startup report
+        if (isReady()) {
+            startPlugin();
+        } else {
+            whenServerReady(this::startPlugin);
+        }
+    }
+
+    /**
+     * Runs a task on the executor once the server is ready, without holding a thread while waiting. Servers providing
+     * whenReady complete it on readiness; earlier releases only expose isReady, which is checked on the scheduled executor.
+     *
+     * @param task
+     */
+    private void whenServerReady(Runnable task) {
+        try {
+            CompletableFuture<?> ready = (CompletableFuture<?>) Red5ProPlugin.class.getMethod("whenReady").invoke(null);
+            ready.thenRunAsync(task, executor);
+            return;
+        } catch (ReflectiveOperationException e) {
+            log.debug("whenReady not available, checking the ready state instead");
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Future<?>> check = new CompletableFuture<>();
+        check.complete(scheduledExecutor.scheduleWithFixedDelay(() -> {
+            if (Red5ProPlugin.isReady() && started.compareAndSet(false, true)) {
+                check.thenAccept(future -> future.cancel(false));
+                executor.execute(task);
             }
-            // perform plugin startup tasks here, starting with the application context and properties
-            try {
-                // create plugins application context checking jar and then conf directory
-                appContext = new FileSystemXmlApplicationContext(new String[] { "classpath:/red5pro-template-plugin.xml" }, context);
-                // set the properties
-                InputStream in = null;
-                // attempt load from conf directory first to match pro style
-                Resource res = appContext.getResource("classpath:/conf/" + pluginPropsFileName);
+        }, 100L, 100L, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Performs the plugin startup tasks once the server is ready.
+     */
+    private void startPlugin() {
+        // perform plugin startup tasks here, starting with the application context and properties
+        try {
+            // create plugins application context checking jar and then conf directory
+            appContext = new FileSystemXmlApplicationContext(new String[] { "classpath:/red5pro-template-plugin.xml" }, context);
+            // set the properties
+            InputStream in = null;
+            // attempt load from conf directory first to match pro style
+            Resource res = appContext.getResource("classpath:/conf/" + pluginPropsFileName);
+            if (!res.exists()) {
+                // attempts load from inside the classpath
+                res = appContext.getResource("classpath:/" + pluginPropsFileName);
                 if (!res.exists()) {
-                    // attempts load from inside the classpath
-                    res = appContext.getResource("classpath:/" + pluginPropsFileName);
-                    if (!res.exists()) {
-                        // load from the jar
-                        in = getClass().getResourceAsStream("/" + pluginPropsFileName);
-                        if (in == null) {
-                            log.warn("Properties not found in classloader!");
-                        }
-                    } else {
-                        in = res.getInputStream();
+                    // load from the jar
+                    in = getClass().getResourceAsStream("/" + pluginPropsFileName);
+                    if (in == null) {
+                        log.warn("Properties not found in classloader!");
                     }
                 } else {
                     in = res.getInputStream();
                 }
-                appProps.load(in);
-            } catch (Exception e) {
-                log.error("Error on start", e);
+            } else {
+                in = res.getInputStream();
             }
-            // TODO perform any other startup tasks here
+            appProps.load(in);
+        } catch (Exception e) {
+            log.error("Error on start", e);
+        }
+        // TODO perform any other startup tasks here
 
-        });
     }
 
     @Override